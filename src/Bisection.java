@@ -0,0 +1,26 @@
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Halves the bracket on every evaluation. It only uses the sign of the function values, so it always 
+ * converges, but it needs about log2(width/epsilon) evaluations. Serves as the fallback of the other methods.
+ *
+ */
+public class Bisection implements RootFinder {
+
+	@Override
+	public Search start(double lower, double upper) {
+		return new Search(lower, upper) {
+			@Override
+			public double next() {
+				return midpoint();
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return "bisection";
+	}
+
+}
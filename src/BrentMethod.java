@@ -0,0 +1,77 @@
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Brent's method: inverse quadratic interpolation through the bracket and the end replaced last, or a secant 
+ * step when only two points are available, with a bisection step whenever the interpolation does not shrink 
+ * the bracket fast enough. It converges superlinearly for smooth functions and needs at most about twice 
+ * the evaluations of bisection otherwise. While the value at an end of the bracket is unknown it extrapolates 
+ * through the last two points, or bisects.
+ *
+ */
+public class BrentMethod implements RootFinder {
+
+	@Override
+	public Search start(double lower, double upper) {
+		return new Search(lower, upper) {
+			// width of the bracket before the previous evaluation
+			private double prevWidth = Double.POSITIVE_INFINITY;
+			private boolean bisected = true;
+
+			@Override
+			public double next() {
+				if (!bracketed()) {
+					double x = extrapolate();
+					if (Double.isNaN(x))
+						return bisect();
+					bisected = false;
+					return x;
+				}
+
+				// best end of the bracket, the other is the contrapoint
+				double b = Math.abs(fLower) < Math.abs(fUpper) ? lower : upper;
+				double fb = b == lower ? fLower : fUpper;
+				double a = b == lower ? upper : lower;
+				double fa = b == lower ? fUpper : fLower;
+
+				double x;
+				if (!Double.isNaN(fReplaced) && replaced != a && replaced != b && fReplaced != fa && fReplaced != fb 
+						&& fa != fb) {
+					// inverse quadratic interpolation
+					x = a*fb*fReplaced/((fa - fb)*(fa - fReplaced)) 
+							+ b*fa*fReplaced/((fb - fa)*(fb - fReplaced)) 
+							+ replaced*fa*fb/((fReplaced - fa)*(fReplaced - fb));
+				} else if (fa != fb) {
+					// secant
+					x = b - fb*(b - a)/(fb - fa);
+				} else {
+					return bisect();
+				}
+
+				// the interpolation has to halve the bracket at least every other step
+				double limit = bisected ? width() : prevWidth;
+				if (!inside(x) || Math.abs(x - b) >= limit/2)
+					return bisect();
+				bisected = false;
+				return x;
+			}
+
+			@Override
+			public void update(double x, double fx) {
+				prevWidth = width();
+				super.update(x, fx);
+			}
+
+			private double bisect() {
+				bisected = true;
+				return midpoint();
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return "Brent";
+	}
+
+}
@@ -0,0 +1,177 @@
+import java.util.Arrays;
+
+/**
+ *
+ * Event queue for simulations in which every event takes place on an integer day. The queue keeps one bucket
+ * per day, so adding an event and removing the upcoming one take constant time, and all events of a day are
+ * handed out as one contiguous batch.
+ *
+ * Within a bucket the events are packed into longs (kind, material index, quantity), and a bucket is sorted
+ * once when its day starts. This gives the same ordering as EventList: order arrivals before consumptions and
+ * then by material index. Events may still be added to the current day while it is processed; the remainder
+ * of the bucket is then sorted again before the next event is handed out.
+ *
+ * @author Nemanja Milovanovic
+ *
+ */
+public class CalendarQueue implements EventQueue {
+
+	private static final int INITIAL_BUCKET_CAPACITY = 4;
+	private static final int MAX_MATERIAL = (1 << 30) - 1;
+
+	// buckets, one per day
+	private long[][] buckets;
+	private int[] bucketSizes;
+
+	// drained buckets, reused for later days
+	private long[][] spare;
+	private int spareCount;
+
+	// current day and position in its bucket
+	private int day;
+	private int position;
+	private boolean sorted;
+	private int size;
+
+	// last removed event
+	private double polledTime;
+	private int polledMaterial;
+	private int polledQuantity;
+	private byte polledKind;
+
+	/**
+	 * Constructs a new calendar queue starting at day 0.
+	 *
+	 * @param days	Expected number of days, the queue grows when events are scheduled later.
+	 */
+	public CalendarQueue(int days) {
+		days = Math.max(days, 1);
+		buckets = new long[days][];
+		bucketSizes = new int[days];
+		spare = new long[16][];
+		spareCount = 0;
+		day = 0;
+		position = 0;
+		sorted = false;
+		size = 0;
+	}
+
+	@Override
+	public void addEvent(double time, byte kind, int material, int quantity) {
+		int d = (int) time;
+		if (d != time)
+			throw new IllegalArgumentException("Calendar queue only supports integer execution times.");
+		if (d < day)
+			throw new IllegalArgumentException("Cannot schedule an event before the current day.");
+		if (material < 0 || material > MAX_MATERIAL)
+			throw new IllegalArgumentException("Material index out of range.");
+
+		if (d >= buckets.length)
+			growDays(d + 1);
+		long[] bucket = buckets[d];
+		int n = bucketSizes[d];
+		if (bucket == null) {
+			bucket = spareCount > 0 ? spare[--spareCount] : new long[INITIAL_BUCKET_CAPACITY];
+			buckets[d] = bucket;
+		} else if (n == bucket.length) {
+			bucket = Arrays.copyOf(bucket, n + (n >>> 1) + 1);
+			buckets[d] = bucket;
+		}
+		bucket[n] = pack(kind, material, quantity);
+		bucketSizes[d] = n + 1;
+		size++;
+
+		// the remainder of the day being processed needs to be ordered again
+		if (d == day)
+			sorted = false;
+	}
+
+	@Override
+	public byte nextEvent() {
+		if (size == 0)
+			throw new IllegalStateException("Event list is empty.");
+
+		// move to the next day with events left
+		while (position == bucketSizes[day]) {
+			release(day);
+			day++;
+			position = 0;
+			sorted = false;
+		}
+		if (!sorted) {
+			Arrays.sort(buckets[day], position, bucketSizes[day]);
+			sorted = true;
+		}
+
+		long event = buckets[day][position++];
+		polledTime = day;
+		polledKind = (byte) (event >>> 62);
+		polledMaterial = (int) (event >>> 32) & MAX_MATERIAL;
+		polledQuantity = (int) event;
+		size--;
+		return polledKind;
+	}
+
+	@Override
+	public double peekTime() {
+		if (size == 0)
+			throw new IllegalStateException("Event list is empty.");
+		int d = day;
+		int p = position;
+		while (p == bucketSizes[d]) {
+			d++;
+			p = 0;
+		}
+		return d;
+	}
+
+	@Override
+	public boolean hasEvent() {
+		return size > 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double polledTime() {
+		return polledTime;
+	}
+
+	@Override
+	public byte polledKind() {
+		return polledKind;
+	}
+
+	@Override
+	public int polledMaterial() {
+		return polledMaterial;
+	}
+
+	@Override
+	public int polledQuantity() {
+		return polledQuantity;
+	}
+
+	private long pack(byte kind, int material, int quantity) {
+		return ((long) kind << 62) | ((long) material << 32) | (quantity & 0xFFFFFFFFL);
+	}
+
+	private void release(int d) {
+		if (buckets[d] != null) {
+			if (spareCount == spare.length)
+				spare = Arrays.copyOf(spare, 2*spare.length);
+			spare[spareCount++] = buckets[d];
+			buckets[d] = null;
+		}
+		bucketSizes[d] = 0;
+	}
+
+	private void growDays(int days) {
+		int capacity = Math.max(days, buckets.length + (buckets.length >>> 1));
+		buckets = Arrays.copyOf(buckets, capacity);
+		bucketSizes = Arrays.copyOf(bucketSizes, capacity);
+	}
+}
@@ -0,0 +1,125 @@
+import org.apache.commons.math3.distribution.PoissonDistribution;
+
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Parameters of the demand distribution of a material, as the Normal and Poisson policy creators estimate them
+ * from the demand history. They only depend on the demand and the lead-time, so MaterialSpec computes them once
+ * and every policy for any target is derived from the same instance.
+ *
+ * The Poisson distribution of the lead-time demand is created on first use and shared as well. It is created
+ * without a random generator, which the policy creators never sample from, so it is immutable.
+ *
+ */
+public final class DemandStatistics {
+
+	private final double leadTime;
+	private final double mean;
+	private final double std;
+	private final double meanNonNegative;
+
+	// created on first use, racing threads create equal instances
+	private volatile PoissonDistribution leadTimePoisson;
+
+	/**
+	 * Computes the demand statistics of a demand history.
+	 *
+	 * @param demand	Historical demand.
+	 * @param leadTime	Lead-time.
+	 */
+	public DemandStatistics(int[] demand, double leadTime) {
+		this.leadTime = leadTime;
+
+		double sum = 0.0;
+		double sumNonNegative = 0.0;
+		int countNonNegative = 0;
+		for (int i = 0; i < demand.length; i++) {
+			sum += demand[i];
+			if (demand[i] >= 0) {
+				sumNonNegative += demand[i];
+				countNonNegative++;
+			}
+		}
+		mean = sum/demand.length;
+		meanNonNegative = sumNonNegative/countNonNegative;
+
+		double squares = 0.0;
+		for (int i = 0; i < demand.length; i++) {
+			squares += Math.pow(demand[i] - mean, 2);
+		}
+		std = Math.sqrt(squares/(demand.length - 1));
+	}
+
+	/**
+	 * Returns the mean demand per day.
+	 *
+	 * @return	Mean demand.
+	 */
+	public double mean() {
+		return mean;
+	}
+
+	/**
+	 * Returns the sample standard deviation of the demand per day.
+	 *
+	 * @return	Standard deviation of the demand.
+	 */
+	public double std() {
+		return std;
+	}
+
+	/**
+	 * Returns the mean demand per day, ignoring the days with negative demand (returns).
+	 *
+	 * @return	Mean non-negative demand.
+	 */
+	public double meanNonNegative() {
+		return meanNonNegative;
+	}
+
+	/**
+	 * Returns the mean demand over the lead-time for a normal distribution.
+	 *
+	 * @return	Mean lead-time demand.
+	 */
+	public double leadTimeMean() {
+		return mean*leadTime;
+	}
+
+	/**
+	 * Returns the standard deviation of the demand over the lead-time for a normal distribution.
+	 *
+	 * @return	Standard deviation of the lead-time demand.
+	 */
+	public double leadTimeStd() {
+		return std*Math.sqrt(leadTime);
+	}
+
+	/**
+	 * Returns the mean demand over the lead-time for a Poisson distribution.
+	 *
+	 * @return	Mean lead-time demand.
+	 */
+	public double leadTimeMeanNonNegative() {
+		return meanNonNegative*leadTime;
+	}
+
+	/**
+	 * Returns the Poisson distribution of the demand over the lead-time, with mean leadTimeMeanNonNegative(),
+	 * created on the first call. Like the constructor of the distribution, it throws a
+	 * NotStrictlyPositiveException if the mean lead-time demand is not positive.
+	 *
+	 * @return	Lead-time demand distribution.
+	 */
+	public PoissonDistribution leadTimePoisson() {
+		PoissonDistribution p = leadTimePoisson;
+		if (p == null) {
+			p = new PoissonDistribution(null, leadTimeMeanNonNegative(), PoissonDistribution.DEFAULT_EPSILON,
+					PoissonDistribution.DEFAULT_MAX_ITERATIONS);
+			leadTimePoisson = p;
+		}
+		return p;
+	}
+
+}
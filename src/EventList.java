@@ -1,59 +1,207 @@
-import java.util.Comparator;
-import java.util.PriorityQueue;
+import java.util.Arrays;
 
 /**
  * 
  * This class carefully stores and distributes all the different events that come in to our system.
  * 
+ * The events are kept in a binary heap laid out as parallel primitive arrays (execution time, material index,
+ * quantity and event kind), so adding and removing events never allocates an Event object. Events are ordered
+ * by execution time, then by kind, then by material index, which makes the processing order fully deterministic.
+ * Orders arriving on a certain day are received before the consumptions of that day are handled.
+ *
+ * This changes the simulated KPIs: the original event list left events on the same day in the order of its
+ * PriorityQueue, which often handled a consumption before an order arriving that day. Realized CSL, fill rate
+ * and costs therefore differ from those of the original simulator, so reports of the two must not be compared.
+ *
  * @author Nemanja Milovanovic
  *
  */
-public class EventList {
-	private PriorityQueue<Event> events;
-	
+public class EventList implements EventQueue {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	// heap storage
+	private double[] times;
+	private int[] materials;
+	private int[] quantities;
+	private byte[] kinds;
+	private int size;
+
+	// last removed event
+	private double polledTime;
+	private int polledMaterial;
+	private int polledQuantity;
+	private byte polledKind;
+
 	/**
-	 * Constructs a new EventList using a priority queue implementation. The events are sorted in ascending 
+	 * Constructs a new EventList using a binary heap implementation. The events are sorted in ascending
 	 * order according to their execution time into the system.
 	 */
 	public EventList() {
-		events = new PriorityQueue<>(5, new EventsComparator());
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Constructs a new EventList with room for a given number of events before it needs to grow.
+	 *
+	 * @param capacity	Initial capacity.
+	 */
+	public EventList(int capacity) {
+		capacity = Math.max(capacity, 1);
+		times = new double[capacity];
+		materials = new int[capacity];
+		quantities = new int[capacity];
+		kinds = new byte[capacity];
+		size = 0;
 	}
 	
 	/**
 	 * Adds an event to the event list.
 	 * 
-	 * @param e Event to be added.
+	 * @param time		Execution time of the event.
+	 * @param kind		Kind of event, either CONSUMPTION or ORDER_ARRIVAL.
+	 * @param material	Index of the material the event is tied to.
+	 * @param quantity	Demand or order quantity.
 	 */
-	public void addEvent(Event e) {
-		events.add(e);
+	@Override
+	public void addEvent(double time, byte kind, int material, int quantity) {
+		if (size == times.length)
+			grow();
+
+		// sift the hole up until the parent is smaller
+		int hole = size++;
+		while (hole > 0) {
+			int parent = (hole - 1) >>> 1;
+			if (!less(time, kind, material, parent))
+				break;
+			move(parent, hole);
+			hole = parent;
+		}
+		set(hole, time, kind, material, quantity);
 	}
 	
 	/**
-	 * Removes the event with the smallest execution time from the event list and returns it.
+	 * Removes the event with the smallest execution time from the event list. The removed event can be
+	 * inspected through polledTime(), polledKind(), polledMaterial() and polledQuantity().
 	 * 
-	 * @return Upcoming event, based on execution time.
+	 * @return Kind of the upcoming event, based on execution time.
 	 */
-	public Event nextEvent() {
-		return events.poll();
+	@Override
+	public byte nextEvent() {
+		if (size == 0)
+			throw new IllegalStateException("Event list is empty.");
+
+		polledTime = times[0];
+		polledKind = kinds[0];
+		polledMaterial = materials[0];
+		polledQuantity = quantities[0];
+
+		// move the last event into the root and sift it down
+		size--;
+		if (size > 0) {
+			double time = times[size];
+			byte kind = kinds[size];
+			int material = materials[size];
+			int quantity = quantities[size];
+
+			int hole = 0;
+			int half = size >>> 1;
+			while (hole < half) {
+				int child = 2*hole + 1;
+				int right = child + 1;
+				if (right < size && less(right, child))
+					child = right;
+				if (!less(child, time, kind, material))
+					break;
+				move(child, hole);
+				hole = child;
+			}
+			set(hole, time, kind, material, quantity);
+		}
+		return polledKind;
 	}
-	
-	public Event peek() {
-		return events.peek();
+
+	/**
+	 * Returns the execution time of the upcoming event without removing it.
+	 *
+	 * @return	Execution time of the upcoming event.
+	 */
+	@Override
+	public double peekTime() {
+		if (size == 0)
+			throw new IllegalStateException("Event list is empty.");
+		return times[0];
 	}
-	
+
+	@Override
 	public boolean hasEvent() {
-		return !events.isEmpty();
+		return size > 0;
 	}
-	
-	private class EventsComparator implements Comparator<Event> {
 
-		public EventsComparator() {
-			
-		}
-		
-		@Override
-		public int compare(Event e1, Event e2) {
-			return (int) Math.signum(e1.executionTime() - e2.executionTime());
-		}
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double polledTime() {
+		return polledTime;
+	}
+
+	@Override
+	public byte polledKind() {
+		return polledKind;
+	}
+
+	@Override
+	public int polledMaterial() {
+		return polledMaterial;
+	}
+
+	@Override
+	public int polledQuantity() {
+		return polledQuantity;
+	}
+
+	private boolean less(double time, byte kind, int material, int j) {
+		if (time != times[j])
+			return time < times[j];
+		if (kind != kinds[j])
+			return kind < kinds[j];
+		return material < materials[j];
+	}
+
+	private boolean less(int i, double time, byte kind, int material) {
+		if (times[i] != time)
+			return times[i] < time;
+		if (kinds[i] != kind)
+			return kinds[i] < kind;
+		return materials[i] < material;
+	}
+
+	private boolean less(int i, int j) {
+		return less(times[i], kinds[i], materials[i], j);
+	}
+
+	private void move(int from, int to) {
+		times[to] = times[from];
+		kinds[to] = kinds[from];
+		materials[to] = materials[from];
+		quantities[to] = quantities[from];
+	}
+
+	private void set(int i, double time, byte kind, int material, int quantity) {
+		times[i] = time;
+		kinds[i] = kind;
+		materials[i] = material;
+		quantities[i] = quantity;
+	}
+
+	private void grow() {
+		int capacity = times.length + (times.length >>> 1) + 1;
+		times = Arrays.copyOf(times, capacity);
+		materials = Arrays.copyOf(materials, capacity);
+		quantities = Arrays.copyOf(quantities, capacity);
+		kinds = Arrays.copyOf(kinds, capacity);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,214 @@
+/**
+ * 
+ * @author Nemanja Milovanovic
+ * 
+ * Event-driven simulation of a range of materials. Consumption and order arrival events are handed out by a 
+ * Scheduler in order of execution time, and every event updates the inventory of its material in an 
+ * InventoryState. The materials themselves are not modified.
+ *
+ */
+public class EventLoop implements SimulationEngine {
+	
+	private Material[] materials;
+	private int from;
+	private int to;
+	private int horizon;
+	private Performance perf;
+	private InventoryState state;
+	private SimulationListener listener;
+	private boolean streamingDemand;
+	private Scheduler scheduler;
+	
+	// costs
+	private double holding_costs;
+	private double fixed_costs;
+	
+	// system state - auxiliary variable for determining holding and backorder costs, indexed from 'from'
+	private double[] system_state;
+	private boolean[] currentStockouts;
+	
+	/**
+	 * Prepares an event-driven simulation of the materials from index 'from' up to, but not including, 'to'.
+	 * 
+	 * @param materials			Materials, the position in the array is the material index used by perf.
+	 * @param from				First material index to simulate.
+	 * @param to				Material index after the last one to simulate.
+	 * @param horizon			Number of periods to simulate.
+	 * @param perf				Performance measures to update.
+	 * @param state				Policies and starting inventory of the materials, updated during the run.
+	 * @param holding_costs		Holding costs per period as a fraction of the price.
+	 * @param fixed_costs		Fixed costs per order.
+	 * @param listener			Listener to notify of events, may be null.
+	 * @param calendarQueue		True to use a calendar queue, false to use a binary heap.
+	 * @param streamingDemand	True to schedule consumptions one at a time, false to schedule all up front.
+	 */
+	public EventLoop(Material[] materials, int from, int to, int horizon, Performance perf, InventoryState state, 
+			double holding_costs, double fixed_costs, SimulationListener listener, boolean calendarQueue, 
+			boolean streamingDemand) {
+		this.materials = materials;
+		this.from = from;
+		this.to = to;
+		this.horizon = horizon;
+		this.perf = perf;
+		this.state = state;
+		this.holding_costs = holding_costs;
+		this.fixed_costs = fixed_costs;
+		this.listener = listener;
+		this.streamingDemand = streamingDemand;
+		
+		if (calendarQueue)
+			scheduler = new Scheduler(new CalendarQueue(horizon + 1));
+		else
+			scheduler = new Scheduler(new EventList(2*(to - from)));
+		system_state = new double[to - from];
+		currentStockouts = new boolean[to - from];
+	}
+	
+	@Override
+	public void run() {
+		// start the iteration up
+		startup();
+		
+		// handle incoming events
+		while (scheduler.hasEvent() && scheduler.peekTime() < horizon)
+			handleNextEvent();
+	}
+	
+	@Override
+	public double nextEventTime() {
+		if (!scheduler.hasEvent())
+			return Double.POSITIVE_INFINITY;
+		return scheduler.peekTime();
+	}
+	
+	@Override
+	public void handleNextEvent() {
+		byte kind = scheduler.nextEvent();
+		int index = scheduler.eventMaterial();
+		Material m = materials[index];
+		
+		// handle a consumption event
+		if (kind == EventQueue.CONSUMPTION) {
+			callbackConsumptionEvent(index, scheduler.eventQuantity());
+			if (streamingDemand)
+				scheduleNextConsumption(index, (int) scheduler.time() + 1);
+		} 
+		
+		// handle a reorder event
+		else if (kind == EventQueue.ORDER_ARRIVAL) {
+			callbackReorderEvent(index, scheduler.eventQuantity());
+		}
+		
+		// update holding costs
+		double prev_time_m = system_state[index - from];
+		double hold_costs = holding_costs*Math.max(0, state.inventoryLevel(index))*
+				(scheduler.time() - prev_time_m)*m.getPrice();
+		perf.addHoldingCosts(index, hold_costs);
+		
+		// register backorders, stockout costs follow from these
+		if (state.isShort(index))
+			perf.backorder(index);
+		
+		// update system state
+		system_state[index - from] = scheduler.time();
+	}
+	
+	private void callbackReorderEvent(int index, int amount) {
+		Material m = materials[index];
+		state.replenishInventoryLevel(index, amount);
+		if (listener != null)
+			listener.onOrderArrival(m, scheduler.time(), amount, state.inventoryLevel(index), state.inventoryPosition(index));
+	}
+	
+	private void callbackConsumptionEvent(int index, int consumption) {
+		Material m = materials[index];
+		
+		// we have a 'visit', so update counter
+		if (consumption > 0)
+			perf.addDemand(index, consumption);
+		
+		// check if we are able to supply demand and update service levels
+		int stockOnhand = Math.max(state.inventoryLevel(index), 0);
+		if (consumption > stockOnhand) {
+			// fill rate
+			perf.deniedDemand(index, consumption - stockOnhand);
+		}
+		
+		// CSL
+		boolean stockedOut = false;
+		int level = state.inventoryLevel(index);
+		if (consumption > level && level > 0 && !currentStockouts[index - from]) {
+			// we just stocked out, so process it
+			perf.stockout(index);
+			currentStockouts[index - from] = true;
+			stockedOut = true;
+		}
+		
+		// consume the material
+		state.consume(index, consumption);
+		if (listener != null) {
+			listener.onConsumption(m, scheduler.time(), consumption, state.inventoryLevel(index), state.inventoryPosition(index));
+			if (stockedOut)
+				listener.onStockout(m, scheduler.time(), state.inventoryLevel(index), state.inventoryPosition(index));
+		}
+		
+		// if stock falls below minimum allowed stock, we schedule reorder event
+		if (state.doReorder(index)) {
+			int lead_time = (int)Math.ceil(m.getLeadTime());
+			int quantity = state.reorder(index);
+			scheduler.addReorderEvent(index, quantity, scheduler.time() + lead_time);
+			// new cycle started
+			perf.startCycle(index);
+			currentStockouts[index - from] = false;
+			
+			// update inventory position
+			state.replenishInventoryPosition(index, quantity);
+			if (listener != null)
+				listener.onReorderPlaced(m, scheduler.time(), quantity, state.inventoryLevel(index), state.inventoryPosition(index));
+			
+			// incur fixed reorder costs
+			perf.addFixedCosts(index, fixed_costs);
+			
+			// incur marginal reorder costs
+			double marg_costs = m.getPrice()*quantity;
+			perf.addMarginalCosts(index, marg_costs);
+		}
+	}
+	
+	private void startup() {
+		for (int i = from; i < to; i++) {
+			if (streamingDemand) {
+				// only schedule the first demand, the rest follows as it is consumed
+				scheduleNextConsumption(i, 0);
+				continue;
+			}
+			
+			// all demand is known beforehand, so populate scheduler with all consumption events
+			Material m = materials[i];
+			for (int t = 0; t < horizon; t++) {
+				int material_demand = m.demand(t);
+				
+				// if there is a demand, add a consumption event
+				if (material_demand != 0)
+					scheduler.addConsumptionEvent(i, material_demand, t);
+			}
+		}
+	}
+	
+	/**
+	 * Schedules the first consumption event of a material at or after a certain period.
+	 * 
+	 * @param index	Material index.
+	 * @param from	First period to look for demand.
+	 */
+	private void scheduleNextConsumption(int index, int from) {
+		int[] demand = materials[index].getDemand();
+		for (int t = from; t < horizon; t++) {
+			if (demand[t] != 0) {
+				scheduler.addConsumptionEvent(index, demand[t], t);
+				return;
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,53 @@
+/**
+ * The EventQueue interface is used for classes which store the scheduled events of the simulation and hand
+ * them out in order of execution time. Events are described by primitives only: execution time, kind,
+ * material index and quantity. Events with equal execution time are handed out by kind and then by material
+ * index, so that every implementation processes events in exactly the same order.
+ *
+ * @author Nemanja Milovanovic
+ *
+ */
+public interface EventQueue {
+
+	// event kinds, the value also determines the processing order of events on the same day
+	public static final byte ORDER_ARRIVAL = 0;
+	public static final byte CONSUMPTION = 1;
+
+	/**
+	 * Adds an event to the queue.
+	 *
+	 * @param time		Execution time of the event.
+	 * @param kind		Kind of event, either CONSUMPTION or ORDER_ARRIVAL.
+	 * @param material	Index of the material the event is tied to.
+	 * @param quantity	Demand or order quantity.
+	 */
+	public void addEvent(double time, byte kind, int material, int quantity);
+
+	/**
+	 * Removes the upcoming event from the queue. The removed event can be inspected through polledTime(),
+	 * polledKind(), polledMaterial() and polledQuantity().
+	 *
+	 * @return Kind of the upcoming event.
+	 */
+	public byte nextEvent();
+
+	/**
+	 * Returns the execution time of the upcoming event without removing it.
+	 *
+	 * @return	Execution time of the upcoming event.
+	 */
+	public double peekTime();
+
+	public boolean hasEvent();
+
+	public int size();
+
+	public double polledTime();
+
+	public byte polledKind();
+
+	public int polledMaterial();
+
+	public int polledQuantity();
+
+}
@@ -0,0 +1,109 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Assigns every group of a material classification (price, demand, criticality or combined class) a small
+ * integer id, and records the group id of every material. Group ids follow the alphabetical order of the
+ * group names, so iterating over the ids gives the same order as iterating over a sorted set of names.
+ *
+ */
+public class GroupIndex {
+
+	// classifications
+	public static final int PRICE = 0;
+	public static final int DEMAND = 1;
+	public static final int CRITICALITY = 2;
+	public static final int COMBINED = 3;
+
+	private String[] names;
+	private Map<String, Integer> ids;
+	private int[] groupOf;
+
+	/**
+	 * Creates the group index of a certain classification for an array of materials.
+	 *
+	 * @param materials			Materials, the position in the array is the material index.
+	 * @param classification	One of PRICE, DEMAND, CRITICALITY or COMBINED.
+	 */
+	public GroupIndex(Material[] materials, int classification) {
+		String[] classes = new String[materials.length];
+		TreeSet<String> sorted = new TreeSet<>();
+		for (int i = 0; i < materials.length; i++) {
+			classes[i] = classify(materials[i], classification);
+			sorted.add(classes[i]);
+		}
+
+		names = sorted.toArray(new String[sorted.size()]);
+		ids = new HashMap<>();
+		for (int g = 0; g < names.length; g++)
+			ids.put(names[g], g);
+
+		groupOf = new int[materials.length];
+		for (int i = 0; i < materials.length; i++)
+			groupOf[i] = ids.get(classes[i]);
+	}
+
+	/**
+	 * Returns the class of a material according to a certain classification.
+	 *
+	 * @param m					Material.
+	 * @param classification	One of PRICE, DEMAND, CRITICALITY or COMBINED.
+	 * @return					Class of the material.
+	 */
+	public static String classify(Material m, int classification) {
+		switch (classification) {
+		case PRICE:			return m.getPriceClass();
+		case DEMAND:		return m.getDemandClass();
+		case CRITICALITY:	return m.criticality();
+		case COMBINED:		return m.getCombinedClass();
+		default:			throw new IllegalArgumentException("Unknown classification: " + classification);
+		}
+	}
+
+	/**
+	 * Returns the number of groups.
+	 *
+	 * @return	Number of groups.
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * Returns the name of a group.
+	 *
+	 * @param group	Group id.
+	 * @return		Group name.
+	 */
+	public String name(int group) {
+		return names[group];
+	}
+
+	/**
+	 * Returns the id of a group.
+	 *
+	 * @param name	Group name.
+	 * @return		Group id.
+	 */
+	public int id(String name) {
+		Integer id = ids.get(name);
+		if (id == null)
+			throw new IllegalArgumentException("Unknown group: " + name);
+		return id;
+	}
+
+	/**
+	 * Returns the group id of a material.
+	 *
+	 * @param material	Material index.
+	 * @return			Group id.
+	 */
+	public int groupOf(int material) {
+		return groupOf[material];
+	}
+
+}
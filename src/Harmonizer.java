@@ -0,0 +1,530 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Searches a target CSL per combined class such that the realized fill rate, and then the realized CSL, come
+ * close to the targets. The service levels of a group only depend on its own materials, so every group is
+ * searched on its own subset, evaluated on the service curves of the group (see ServiceCurves). The groups
+ * advance in iterations: every iteration, each group that is still open takes one step of its search, in
+ * parallel, after which the metrics of the iteration are reported to the listener.
+ *
+ * The search stops when all groups are closed, or earlier when the time limit is reached or cancel() is
+ * called. In that case every open group keeps the best target it has evaluated so far, and a group whose
+ * service curves were not finished keeps its starting target. Either way the resulting policies are simulated
+ * once for all materials together.
+ *
+ */
+public class Harmonizer {
+
+	private PolicyCreator pc;
+	private MaterialRegistry materials;
+	private Map<String, Double> targetCSL;
+	private Map<String, Double> targetFR;
+	private RootFinder finder = new IllinoisMethod();
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+	private Listener listener;
+
+	// stopping criteria
+	// step size criterion
+	private double epsilon = 1e-5;
+	// max iterations per phase
+	private int n_max = 300;
+	// neighborhood criterion
+	private double neighborhood = 0.02;
+	// time limit in nanoseconds, from the start of harmonize()
+	private long timeLimit = Long.MAX_VALUE;
+	private volatile boolean cancelled = false;
+	// start of the running harmonize(), and the time kept for its final simulation
+	private long start;
+	private final AtomicLong finalSimulation = new AtomicLong();
+
+	// outcome of the last harmonize()
+	private List<Iteration> iterations = new ArrayList<>();
+	private Map<String, Double> newTargetCSL;
+	private boolean complete = false;
+
+	/**
+	 * Creates a harmonizer.
+	 *
+	 * @param pc			Creator of the policies.
+	 * @param materials		Materials to harmonize.
+	 * @param targetCSL		Target CSL per combined class.
+	 * @param targetFR		Target fill rate per combined class.
+	 */
+	public Harmonizer(PolicyCreator pc, MaterialRegistry materials, Map<String, Double> targetCSL,
+			Map<String, Double> targetFR) {
+		this.pc = pc;
+		this.materials = materials;
+		this.targetCSL = targetCSL;
+		this.targetFR = targetFR;
+	}
+
+	/**
+	 * Selects the method to search the target CSL of a group, IllinoisMethod by default.
+	 *
+	 * @param finder	Search method, e.g. Bisection, IllinoisMethod or BrentMethod.
+	 */
+	public void setRootFinder(RootFinder finder) {
+		this.finder = finder;
+	}
+
+	/**
+	 * Selects the pool the groups are searched on, the common pool by default.
+	 *
+	 * @param pool	Pool to search on.
+	 */
+	public void setForkJoinPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Registers a listener which is notified after every iteration.
+	 *
+	 * @param listener	Listener to notify, or null to remove the current listener.
+	 */
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	public void setEpsilon(double epsilon) {
+		this.epsilon = epsilon;
+	}
+
+	public void setMaxIterations(int n_max) {
+		this.n_max = n_max;
+	}
+
+	public void setNeighborhood(double neighborhood) {
+		this.neighborhood = neighborhood;
+	}
+
+	/**
+	 * Limits the duration of harmonize(). The limit is checked between iterations and, while the service curves
+	 * are set up, between materials; groups whose curves were not finished keep their starting target. Time is
+	 * kept for the final simulation of all materials, estimated by the simulations of the groups at the start.
+	 * The limit is not strict: a running iteration completes, and the estimate may be off.
+	 *
+	 * @param duration	Time limit.
+	 * @param unit		Unit of the time limit.
+	 */
+	public void setTimeLimit(long duration, TimeUnit unit) {
+		this.timeLimit = unit.toNanos(duration);
+	}
+
+	/**
+	 * Stops a running harmonize() after the current iteration, or while setting up, after the current material;
+	 * it then simulates and returns the best targets so far. May be called from any thread. Every harmonize()
+	 * starts uncancelled, so an instance can be run again after a cancel().
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Searches the targets of all groups and simulates the resulting policies.
+	 *
+	 * @return	Simulator of all materials with the harmonized policies, simulated.
+	 */
+	public Simulator harmonize() {
+		start = System.nanoTime();
+		cancelled = false;
+		finalSimulation.set(0);
+		iterations = new ArrayList<>();
+		complete = false;
+
+		// set up the search of every group, this is iteration 0
+		List<GroupSearch> searches = new ArrayList<>();
+		for (Map.Entry<String, MaterialRegistry> e : materials.groupByCombinedClass().entrySet())
+			searches.add(new GroupSearch(e.getKey(), e.getValue()));
+		run(searches, true);
+		report(0, searches, System.nanoTime() - start);
+
+		// advance the open groups
+		int iteration = 1;
+		List<GroupSearch> open = open(searches);
+		while (!open.isEmpty() && !stopped()) {
+			long t0 = System.nanoTime();
+			run(open, false);
+			report(iteration, searches, System.nanoTime() - t0);
+			open = open(searches);
+			iteration++;
+		}
+		complete = open.isEmpty();
+		for (GroupSearch search : searches)
+			complete &= !search.fallback;
+
+		// assemble the simulation of all materials from the policies the groups ended with, closed groups keep 
+		// their final target, open groups use their best target
+		newTargetCSL = new HashMap<>(targetCSL);
+		PolicyParameters policies = new PolicyParameters(materials.size());
+		for (GroupSearch search : searches) {
+			newTargetCSL.put(search.group, search.closed ? search.target : search.bestTarget);
+			PolicyParameters groupPolicies = search.policies(search.closed);
+			for (int j = 0; j < groupPolicies.size(); j++)
+				policies.set(materials.indexOf(search.groupMaterials.get(j)), groupPolicies, j);
+		}
+		Simulator sim = new Simulator(materials);
+		sim.setPolicies(policies);
+		sim.simulate();
+		return sim;
+	}
+
+	/**
+	 * Checks if the last harmonize() closed all groups, rather than stopping at the time limit or by cancel().
+	 *
+	 * @return	True if all groups were closed.
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Returns the harmonized target CSL per combined class of the last harmonize().
+	 *
+	 * @return	Target CSL per combined class.
+	 */
+	public Map<String, Double> getTargetCSL() {
+		return newTargetCSL;
+	}
+
+	/**
+	 * Returns the metrics of the iterations of the last harmonize(), starting with the set-up as iteration 0.
+	 *
+	 * @return	Metrics per iteration.
+	 */
+	public List<Iteration> getIterations() {
+		return Collections.unmodifiableList(iterations);
+	}
+
+	/**
+	 * Checks if the search has to stop, because it was cancelled or because the time left is needed for the
+	 * final simulation.
+	 *
+	 * @return	True if the search has to stop.
+	 */
+	private boolean stopped() {
+		return cancelled || System.nanoTime() - start > timeLimit - finalSimulation.get();
+	}
+
+	private List<GroupSearch> open(List<GroupSearch> searches) {
+		List<GroupSearch> open = new ArrayList<>();
+		for (GroupSearch search : searches) {
+			if (!search.closed)
+				open.add(search);
+		}
+		return open;
+	}
+
+	private void run(List<GroupSearch> searches, final boolean setUp) {
+		List<Callable<Void>> tasks = new ArrayList<>(searches.size());
+		for (final GroupSearch search : searches) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					if (setUp)
+						search.setUp();
+					else
+						search.step();
+					return null;
+				}
+			});
+		}
+
+		try {
+			for (Future<Void> f : pool.invokeAll(tasks))
+				f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Harmonization interrupted.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private void report(int iteration, List<GroupSearch> searches, long nanos) {
+		int open = 0;
+		int evaluations = 0;
+		double maxGap = 0.0;
+		for (GroupSearch search : searches) {
+			if (!search.closed)
+				open++;
+			evaluations += search.evaluations;
+			// a group that fell back was not searched
+			if (!search.fallback)
+				maxGap = Math.max(maxGap, search.gap());
+		}
+		Iteration metrics = new Iteration(iteration, open, maxGap, evaluations, nanos);
+		iterations.add(metrics);
+		if (listener != null)
+			listener.onIteration(metrics);
+	}
+
+	/**
+	 * Search of a single group, first on the fill rate and then on the CSL. Every step evaluates at most one
+	 * target, on the service curves of the group, and only creates the policies of the group. Once the group 
+	 * is closed, its target, policies and service levels stay as they are.
+	 */
+	private class GroupSearch {
+
+		private final String group;
+		private final MaterialRegistry groupMaterials;
+		// the group is the only combined class of its materials, with group id 0
+		private final GroupIndex groups;
+		private final double tCSL;
+		private final double tFR;
+		private ServiceCurves curves;
+		private double[] groupTarget = new double[1];
+		private double[] realizedCSL = new double[1];
+		private double[] realizedFR = new double[1];
+
+		private double rCSL;
+		private double rFR;
+		private double target;
+		// policies of the target, null until a target has been evaluated
+		private PolicyParameters policies;
+		private RootFinder.Search search;
+		private boolean csl = false;
+		private boolean closed = false;
+		// closed at the starting target, because the set-up did not finish
+		private boolean fallback = false;
+		private int iteration = 1;
+		private int evaluations = 0;
+
+		// best target of the current phase
+		private double bestTarget;
+		private PolicyParameters bestPolicies;
+		private double bestGap = Double.POSITIVE_INFINITY;
+
+		GroupSearch(String group, MaterialRegistry groupMaterials) {
+			this.group = group;
+			this.groupMaterials = groupMaterials;
+			this.groups = new GroupIndex(groupMaterials.toArray(), GroupIndex.COMBINED);
+			this.tCSL = targetCSL.get(group);
+			this.tFR = targetFR.get(group);
+		}
+
+		void setUp() {
+			target = tCSL;
+			bestTarget = tCSL;
+			if (stopped()) {
+				fallBack();
+				return;
+			}
+
+			// the group is the only combined class of its simulator and curves, its simulation time adds to the 
+			// estimate of the final simulation
+			long t0 = System.nanoTime();
+			SimulationResult result = new Simulator(groupMaterials).simulate();
+			finalSimulation.addAndGet(System.nanoTime() - t0);
+			rCSL = result.CSL(GroupIndex.COMBINED, 0);
+			rFR = result.fillRate(GroupIndex.COMBINED, 0);
+			curves = new ServiceCurves(groupMaterials, pc, new BooleanSupplier() {
+				@Override
+				public boolean getAsBoolean() {
+					return stopped();
+				}
+			});
+			if (curves.isStopped()) {
+				fallBack();
+				return;
+			}
+			search = finder.start(0.0, 1.0);
+			record();
+			advancePhases();
+		}
+
+		void step() {
+			if (csl)
+				search.update(target, rCSL-tCSL);
+			else
+				search.update(target, rFR-tFR);
+			target = search.next();
+
+			// update rCSL and rFR using the service curves
+			groupTarget[0] = target;
+			policies = new PolicyParameters(groupMaterials.size());
+			curves.evaluate(groupTarget, realizedCSL, realizedFR, policies);
+			rCSL = realizedCSL[0];
+			rFR = realizedFR[0];
+			evaluations++;
+			iteration++;
+			record();
+
+			// update stopping criteria
+			if (search.width() < epsilon)
+				nextPhase();
+			advancePhases();
+		}
+
+		/**
+		 * Closes the group at its starting target, without searching.
+		 */
+		private void fallBack() {
+			fallback = true;
+			closed = true;
+		}
+
+		/**
+		 * Moves on to the next phase, or closes the search, while the stopping criteria of the phase hold. The 
+		 * criteria are negated comparisons, so a NaN service level, e.g. the fill rate of a group with a material 
+		 * without demand, never meets them and the search goes on, like the original harmonization did.
+		 */
+		private void advancePhases() {
+			if (!csl && !(iteration <= n_max && !(Math.abs(rFR-tFR) <= neighborhood)))
+				nextPhase();
+			if (csl && !closed && !(iteration <= n_max && !(rCSL > tCSL) && !(Math.abs(rCSL-tCSL) <= neighborhood)))
+				closed = true;
+		}
+
+		private void nextPhase() {
+			if (csl) {
+				closed = true;
+				return;
+			}
+
+			// then raise the target until the realized CSL is close to or above the target CSL
+			csl = true;
+			search = finder.start(search.lower(), 1.0);
+			iteration = 1;
+			bestGap = Double.POSITIVE_INFINITY;
+			record();
+		}
+
+		private void record() {
+			if (gap() < bestGap) {
+				bestGap = gap();
+				bestTarget = target;
+				bestPolicies = policies;
+			}
+		}
+		
+		/**
+		 * Returns the policies of the final or the best target, they are only created if that target has not 
+		 * been evaluated, i.e. for the initial target.
+		 * 
+		 * @param last	True for the final target, false for the best target.
+		 * @return		Policy parameters per material index of the group.
+		 */
+		PolicyParameters policies(boolean last) {
+			PolicyParameters p = last ? policies : bestPolicies;
+			if (p == null) {
+				groupTarget[0] = last ? target : bestTarget;
+				p = pc.createPoliciesCSL(groupMaterials, groups, groupTarget, null);
+			}
+			return p;
+		}
+
+		/**
+		 * Returns the gap between target and realized service level of the current phase.
+		 *
+		 * @return	Absolute gap.
+		 */
+		double gap() {
+			return csl ? Math.abs(rCSL-tCSL) : Math.abs(rFR-tFR);
+		}
+
+	}
+
+	/**
+	 * Metrics of a single iteration.
+	 */
+	public static final class Iteration {
+
+		private final int iteration;
+		private final int openGroups;
+		private final double maxGap;
+		private final int evaluations;
+		private final long nanos;
+
+		public Iteration(int iteration, int openGroups, double maxGap, int evaluations, long nanos) {
+			this.iteration = iteration;
+			this.openGroups = openGroups;
+			this.maxGap = maxGap;
+			this.evaluations = evaluations;
+			this.nanos = nanos;
+		}
+
+		public int iteration() {
+			return iteration;
+		}
+
+		/**
+		 * Returns the number of groups that are still open after the iteration.
+		 *
+		 * @return	Number of open groups.
+		 */
+		public int openGroups() {
+			return openGroups;
+		}
+
+		/**
+		 * Returns the largest gap between target and realized service level over all groups, in the phase
+		 * each group is in: the fill rate, or the CSL.
+		 *
+		 * @return	Largest absolute gap.
+		 */
+		public double maxGap() {
+			return maxGap;
+		}
+
+		/**
+		 * Returns the number of targets evaluated over all groups up to and including the iteration.
+		 *
+		 * @return	Number of evaluations.
+		 */
+		public int evaluations() {
+			return evaluations;
+		}
+
+		/**
+		 * Returns the wall-clock time of the iteration.
+		 *
+		 * @param unit	Unit of the time.
+		 * @return		Time of the iteration.
+		 */
+		public double time(TimeUnit unit) {
+			return (double) nanos/unit.toNanos(1);
+		}
+
+		@Override
+		public String toString() {
+			return "iteration " + iteration + ": " + openGroups + " groups open, max gap " + maxGap + ", " +
+					evaluations + " evaluations, " + time(TimeUnit.MILLISECONDS) + " ms";
+		}
+
+	}
+
+	/**
+	 * Listener to follow the progress of a harmonization.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called after every iteration, on the thread running harmonize().
+		 *
+		 * @param iteration	Metrics of the iteration.
+		 */
+		public void onIteration(Iteration iteration);
+
+	}
+
+}
@@ -0,0 +1,52 @@
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Bracketed secant method (regula falsi) with the Illinois modification: when the same end of the bracket is 
+ * kept twice in a row, its function value is halved, so the other end moves as well. For smooth functions it 
+ * converges superlinearly. While the value at an end of the bracket is unknown it extrapolates 
+ * through the last two points, or bisects.
+ *
+ */
+public class IllinoisMethod implements RootFinder {
+
+	@Override
+	public Search start(double lower, double upper) {
+		return new Search(lower, upper) {
+			// side of the bracket replaced by the previous evaluation, -1 lower, 1 upper, 0 none
+			private int side = 0;
+
+			@Override
+			public double next() {
+				if (!bracketed()) {
+					double x = extrapolate();
+					return Double.isNaN(x) ? midpoint() : x;
+				}
+				if (fUpper == fLower)
+					return midpoint();
+				double x = lower - fLower*(upper - lower)/(fUpper - fLower);
+				return inside(x) ? x : midpoint();
+			}
+
+			@Override
+			public void update(double x, double fx) {
+				super.update(x, fx);
+				int replaced = fx < 0 ? -1 : 1;
+				if (replaced == side) {
+					// the other end was kept twice
+					if (side < 0)
+						fUpper /= 2;
+					else
+						fLower /= 2;
+				}
+				side = replaced;
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return "Illinois";
+	}
+
+}
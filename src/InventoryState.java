@@ -0,0 +1,184 @@
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Per-run state of the simulated materials: the parameters of the reorder policies and the inventory level and
+ * position, all in primitive arrays indexed by material index. The policies only provide the parameters and
+ * the starting inventory, they are not modified, so the materials can be shared between simulations. reset()
+ * restores the starting inventory, which allows a simulation to be run again without copying the materials.
+ *
+ * Only (s,S) and (R,Q) policies are supported. The operations mirror those of ReorderPolicy.
+ *
+ */
+public class InventoryState {
+
+	// policies
+	private int[] reorderPoint;
+	private int[] maxStock;
+	private int[] quantity;
+	private boolean[] orderUpTo;
+
+	// starting inventory
+	private int[] initialLevel;
+	private int[] initialPosition;
+
+	// current inventory
+	private int[] inventoryLevel;
+	private int[] inventoryPosition;
+
+	/**
+	 * Creates the state of an array of materials with their current policies.
+	 *
+	 * @param materials	Materials, the position in the array is the material index.
+	 */
+	public InventoryState(Material[] materials) {
+		int n = materials.length;
+		reorderPoint = new int[n];
+		maxStock = new int[n];
+		quantity = new int[n];
+		orderUpTo = new boolean[n];
+		initialLevel = new int[n];
+		initialPosition = new int[n];
+		inventoryLevel = new int[n];
+		inventoryPosition = new int[n];
+		for (int i = 0; i < n; i++)
+			setPolicy(i, materials[i].getPolicy());
+		reset();
+	}
+
+	/**
+	 * Replaces the policy of a material. The inventory of the material is set to the starting inventory of the
+	 * policy on the next reset().
+	 *
+	 * @param m			Material index.
+	 * @param policy	New policy.
+	 */
+	public void setPolicy(int m, ReorderPolicy policy) {
+		if (policy instanceof PolicyRQ) {
+			quantity[m] = ((PolicyRQ) policy).quantity();
+			orderUpTo[m] = false;
+		} else if (policy instanceof PolicySS) {
+			quantity[m] = 0;
+			orderUpTo[m] = true;
+		} else {
+			throw new IllegalArgumentException("Unsupported reorder policy: " + policy.getClass().getName());
+		}
+		reorderPoint[m] = policy.reorderPoint();
+		maxStock[m] = policy.maxStock();
+		initialLevel[m] = policy.inventoryLevel();
+		initialPosition[m] = policy.inventoryPostion();
+	}
+
+	/**
+	 * Replaces the policies of all materials by policy parameters, without creating policy objects. The inventory
+	 * is set to the starting inventory of the policies on the next reset().
+	 *
+	 * @param policies	Policy parameters per material index.
+	 */
+	public void setPolicies(PolicyParameters policies) {
+		for (int m = 0; m < reorderPoint.length; m++) {
+			orderUpTo[m] = policies.isOrderUpTo(m);
+			quantity[m] = orderUpTo[m] ? 0 : policies.quantity(m);
+			reorderPoint[m] = policies.reorderPoint(m);
+			maxStock[m] = policies.maxStock(m);
+			initialLevel[m] = policies.initialStock(m);
+			initialPosition[m] = policies.initialStock(m);
+		}
+	}
+
+	/**
+	 * Restores the starting inventory of all materials.
+	 */
+	public void reset() {
+		System.arraycopy(initialLevel, 0, inventoryLevel, 0, initialLevel.length);
+		System.arraycopy(initialPosition, 0, inventoryPosition, 0, initialPosition.length);
+	}
+
+	public int size() {
+		return reorderPoint.length;
+	}
+
+	public int reorderPoint(int m) {
+		return reorderPoint[m];
+	}
+
+	public int maxStock(int m) {
+		return maxStock[m];
+	}
+
+	public int quantity(int m) {
+		return quantity[m];
+	}
+	
+	/**
+	 * Checks if a material orders up to the maximum stock, as in (s,S), or a fixed quantity, as in (R,Q).
+	 * 
+	 * @param m	Material index.
+	 * @return	True for an (s,S) policy.
+	 */
+	public boolean isOrderUpTo(int m) {
+		return orderUpTo[m];
+	}
+	
+	public int initialLevel(int m) {
+		return initialLevel[m];
+	}
+	
+	public int initialPosition(int m) {
+		return initialPosition[m];
+	}
+	
+	public int inventoryLevel(int m) {
+		return inventoryLevel[m];
+	}
+
+	public int inventoryPosition(int m) {
+		return inventoryPosition[m];
+	}
+
+	public boolean isShort(int m) {
+		return inventoryLevel[m] < 0;
+	}
+
+	/**
+	 * Checks if a material needs to be reordered.
+	 *
+	 * @param m	Material index.
+	 * @return	True if the inventory position is at or below the reorder point.
+	 */
+	public boolean doReorder(int m) {
+		return inventoryPosition[m] <= reorderPoint[m];
+	}
+
+	/**
+	 * Returns the quantity to reorder, either up to the maximum stock or the fixed order quantity.
+	 *
+	 * @param m	Material index.
+	 * @return	Reorder quantity.
+	 */
+	public int reorder(int m) {
+		if (!orderUpTo[m])
+			return quantity[m];
+		if (doReorder(m))
+			return maxStock[m] - inventoryPosition[m];
+		throw new IllegalStateException("Inventory position not below minimum allowed stock.");
+	}
+
+	public void consume(int m, int amount) {
+		inventoryLevel[m] -= amount;
+		inventoryPosition[m] = Math.max(inventoryPosition[m] - amount, 0);
+	}
+
+	public void replenishInventoryLevel(int m, int amount) {
+		if (amount < 0)
+			throw new IllegalStateException("Cannot replenish negative values.");
+		inventoryLevel[m] += amount;
+	}
+
+	public void replenishInventoryPosition(int m, int amount) {
+		if (amount < 0)
+			throw new IllegalStateException("Cannot replenish negative values.");
+		inventoryPosition[m] += amount;
+	}
+
+}
@@ -0,0 +1,151 @@
+import java.util.Arrays;
+
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Empirical distribution of the lead-time demand of a material, i.e. the demand over every window of ceil(lead-time)
+ * consecutive days of the history. The window sums are computed with a sliding window, sorted in a primitive array
+ * and reduced to the distinct values with their cumulative probabilities.
+ *
+ * The cumulative probabilities are summed value by value in increasing order, each value adding count/n, so they
+ * are exactly the doubles of the frequency and probability tables the Porras creators used to build. Reorder
+ * points found with quantile() are therefore identical to those of stepping up the CDF one unit at a time.
+ *
+ * A distribution never changes after construction, MaterialSpec builds it once per material and shares it
+ * between all policy creators and threads.
+ *
+ */
+public final class LeadTimeDemand {
+
+	private final int[] sorted;
+	private final int[] values;
+	private final double[] cumulative;
+
+	/**
+	 * Creates the lead-time demand distribution of a demand history.
+	 *
+	 * @param demand	Historical demand.
+	 * @param leadTime	Lead-time, rounded up to whole days.
+	 */
+	public LeadTimeDemand(int[] demand, double leadTime) {
+		sorted = sums(demand, (int) Math.ceil(leadTime));
+		Arrays.sort(sorted);
+
+		int n = sorted.length;
+		int distinct = 0;
+		for (int i = 0; i < n; i++) {
+			if (i == 0 || sorted[i] != sorted[i-1])
+				distinct++;
+		}
+		values = new int[distinct];
+		cumulative = new double[distinct];
+
+		double total = 0.0;
+		int d = 0;
+		for (int i = 0; i < n; ) {
+			int j = i;
+			while (j < n && sorted[j] == sorted[i])
+				j++;
+			total += (double)(j - i) / n;
+			values[d] = sorted[i];
+			cumulative[d] = total;
+			d++;
+			i = j;
+		}
+	}
+
+	/**
+	 * Sums the demand over every window of a number of consecutive days.
+	 *
+	 * @param demand	Historical demand.
+	 * @param days		Length of the window.
+	 * @return			Sum per window start, from day 0 to day demand.length - days.
+	 */
+	public static int[] sums(int[] demand, int days) {
+		int windows = demand.length - days + 1;
+		if (windows <= 0)
+			return new int[0];
+		int[] sums = new int[windows];
+		if (days <= 0)
+			return sums;
+
+		int sum = 0;
+		for (int j = 0; j < days; j++)
+			sum += demand[j];
+		sums[0] = sum;
+		for (int i = 1; i < windows; i++) {
+			sum += demand[i + days - 1] - demand[i - 1];
+			sums[i] = sum;
+		}
+		return sums;
+	}
+
+	/**
+	 * Returns the number of lead-time windows of the history.
+	 *
+	 * @return	Number of lead-time demands.
+	 */
+	public int size() {
+		return sorted.length;
+	}
+
+	/**
+	 * Returns the probability that the lead-time demand is at most k.
+	 *
+	 * @param k	Demand.
+	 * @return	Empirical CDF at k.
+	 */
+	public double cdf(int k) {
+		int d = count(k);
+		return d == 0 ? 0.0 : cumulative[d-1];
+	}
+
+	/**
+	 * Returns the number of distinct lead-time demands that are at most k.
+	 */
+	private int count(int k) {
+		int low = 0;
+		int high = values.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] <= k)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the smallest demand k >= min with cdf(k) + tolerance >= target, found by a binary search over the
+	 * cumulative probabilities of the distinct lead-time demands.
+	 *
+	 * @param target	Target probability.
+	 * @param tolerance	Tolerance on the probabilities.
+	 * @param min		Smallest demand to return.
+	 * @return			Empirical quantile.
+	 * @throws IllegalArgumentException	If the target is not reached, e.g. when the history is shorter than the
+	 * 									lead-time.
+	 */
+	public int quantile(double target, double tolerance, int min) {
+		if (!(cdf(min) + tolerance < target))
+			return min;
+
+		// first distinct demand at which the CDF reaches the target, it lies above min
+		int low = 0;
+		int high = values.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (cumulative[mid] + tolerance < target)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		if (low == values.length)
+			throw new IllegalArgumentException("Lead-time demand never reaches " + target + " with " + size()
+					+ " lead-time windows");
+		return values[low];
+	}
+
+}
@@ -1,15 +1,24 @@
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class Main {
 
+	// outcomes kept per material by a task of exportEfficiencyCurves, it only looks up those of the previous target
+	private static final int CACHED_OUTCOMES_PER_MATERIAL = 1;
+	// consecutive target CSLs simulated by one task of exportEfficiencyCurves
+	private static final int TARGETS_PER_TASK = 8;
+
 	public static void main(String[] args) {
 		Simulator simCurrent = new Simulator("R_EOQ_test.csv");
 
@@ -17,14 +26,14 @@ public class Main {
 		System.out.println(simCurrent.simulate());
 		Map<String, Double> currentCSLCombined = simCurrent.getRealizedCSLCombined();
 		Map<String, Double> currentFRCombined = simCurrent.getRealizedFRCombined();
-		Set<Material> currentMaterials = simCurrent.getMaterials();
+		MaterialRegistry currentMaterials = simCurrent.getRegistry();
 
 		/*
 		 * Create (R,Q) policies
 		 */
 		// simulate using Porras
 //		PorrasPolicyRQ porraspcRQ = new PorrasPolicyRQ();
-//		Set<Material> porrasMaterialsRQ = porraspcRQ.createPolicyCSL(currentMaterials, currentCSLCombined);
+//		MaterialRegistry porrasMaterialsRQ = porraspcRQ.createPolicyCSL(currentMaterials, currentCSLCombined);
 //		Simulator simPorrasRQ = new Simulator(porrasMaterialsRQ);
 //		System.out.println(simPorrasRQ.simulate());
 //		// harmonize Porras
@@ -33,7 +42,7 @@ public class Main {
 //
 //		// simulate using Normal policies
 //		NormalPolicyRQ normalpcRQ = new NormalPolicyRQ();
-//		Set<Material> normalMaterialsRQ = normalpcRQ.createPolicyCSL(currentMaterials, currentCSLCombined);
+//		MaterialRegistry normalMaterialsRQ = normalpcRQ.createPolicyCSL(currentMaterials, currentCSLCombined);
 //		Simulator simNormalRQ = new Simulator(normalMaterialsRQ);
 //		System.out.println(simNormalRQ.simulate());
 //		// harmonize Normal
@@ -42,7 +51,7 @@ public class Main {
 //
 //		// simulate using Poisson policies
 //		PoissonPolicyRQ poisspcRQ = new PoissonPolicyRQ();
-//		Set<Material> poissonMaterialsRQ = poisspcRQ.createPolicyCSL(currentMaterials, currentCSLCombined);
+//		MaterialRegistry poissonMaterialsRQ = poisspcRQ.createPolicyCSL(currentMaterials, currentCSLCombined);
 //		Simulator simPoissonRQ = new Simulator(poissonMaterialsRQ);
 //		System.out.println(simPoissonRQ.simulate());
 //		// harmonize Poisson
@@ -54,7 +63,7 @@ public class Main {
 //		 */
 //		// simulate using Porras
 //		PorrasPolicyS porraspcS = new PorrasPolicyS();
-//		Set<Material> porrasMaterialsS = porraspcS.createPolicyCSL(currentMaterials, currentCSLCombined);
+//		MaterialRegistry porrasMaterialsS = porraspcS.createPolicyCSL(currentMaterials, currentCSLCombined);
 //		Simulator simPorrasS = new Simulator(porrasMaterialsS);
 //		System.out.println(simPorrasS.simulate());
 //		// harmonize Porras
@@ -63,7 +72,7 @@ public class Main {
 //
 //		// simulate using Normal policies
 //		NormalPolicyS normpcS = new NormalPolicyS();
-//		Set<Material> normalMaterialsS = normpcS.createPolicyCSL(currentMaterials, currentCSLCombined);
+//		MaterialRegistry normalMaterialsS = normpcS.createPolicyCSL(currentMaterials, currentCSLCombined);
 //		Simulator simNormalS = new Simulator(normalMaterialsS);
 //		System.out.println(simNormalS.simulate());
 //		// harmonize normal
@@ -72,7 +81,7 @@ public class Main {
 //
 //		// only do Poisson for some
 //		PoissonPolicyS poisspcS = new PoissonPolicyS();
-//		Set<Material> poissonMaterialsS = poisspcS.createPolicyCSL(currentMaterials, currentCSLCombined);
+//		MaterialRegistry poissonMaterialsS = poisspcS.createPolicyCSL(currentMaterials, currentCSLCombined);
 //		Simulator simPoissonS = new Simulator(poissonMaterialsS);
 //		System.out.println(simPoissonS.simulate());
 //		// harmonize Poisson
@@ -89,209 +98,195 @@ public class Main {
 //			harmonizedNormalSimRQ.exportServiceMeasures("harm_normalRQ_training");
 //			harmonizedPoissonSimRQ.exportServiceMeasures("harm_poissonRQ_training");
 			
+//			// all curves share one pool, e.g. Executors.newFixedThreadPool(32)
+//			ExecutorService pool = ForkJoinPool.commonPool();
 //			exportEfficiencyCurves("harm_normalRQ", normalpcRQ, 
-//					normalMaterialsRQ, currentCSLCombined.keySet());
+//					normalMaterialsRQ, currentCSLCombined.keySet(), pool);
 //			exportEfficiencyCurves("harm_poissonRQ", poisspcRQ, 
-//					poissonMaterialsRQ, currentCSLCombined.keySet());
+//					poissonMaterialsRQ, currentCSLCombined.keySet(), pool);
 //			exportEfficiencyCurves("harm_porrasRQ", porraspcRQ, 
-//					porrasMaterialsRQ, currentCSLCombined.keySet());
+//					porrasMaterialsRQ, currentCSLCombined.keySet(), pool);
 //			exportEfficiencyCurves("harm_normal", normpcS, 
-//					normalMaterialsS, currentCSLCombined.keySet());
+//					normalMaterialsS, currentCSLCombined.keySet(), pool);
 //			exportEfficiencyCurves("harm_poisson", poisspcS, 
-//					poissonMaterialsS, currentCSLCombined.keySet());
+//					poissonMaterialsS, currentCSLCombined.keySet(), pool);
 //			exportEfficiencyCurves("harm_porras", porraspcS, 
-//					porrasMaterialsS, currentCSLCombined.keySet());
+//					porrasMaterialsS, currentCSLCombined.keySet(), pool);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
-	private static Simulator harmonizeService(PolicyCreator pc, Set<Material> materials, 
+	/**
+	 * Searches a target CSL per combined class such that the realized fill rate, and then the realized CSL, 
+	 * come close to the targets, see Harmonizer.
+	 * 
+	 * @param pc			Creator of the policies.
+	 * @param materials		Materials to harmonize.
+	 * @param targetCSL		Target CSL per combined class.
+	 * @param targetFR		Target fill rate per combined class.
+	 * @return				Simulator of all materials with the harmonized policies, simulated.
+	 */
+	private static Simulator harmonizeService(PolicyCreator pc, MaterialRegistry materials, 
 			Map<String, Double> targetCSL, Map<String, Double> targetFR) {
-		// initialize the environment
-		Simulator sim = new Simulator(materials);
-		sim.simulate();
-		Map<String, Double> realizedCSL = sim.getRealizedCSLCombined();
-		Map<String, Double> realizedFR = sim.getRealizedFRCombined();
-		Map<String, Double> newTargetCSL = new HashMap<>(targetCSL);
-
-		// stopping criteria
-		// step size criterion
-		double epsilon = 1e-5;
-		// max iterations
-		int n_max = 300;
-		// neighborhood criterion
-		double neighborhood = 0.02;
-
-		// implement a binary search type method
-		Map<String, Boolean> stopping_criteria = new HashMap<>();
-		Map<String, Double> lower_bounds = new HashMap<>();
-		Map<String, Double> upper_bounds = new HashMap<>();
-		int iteration = 1;
-		for (String group : targetCSL.keySet()) {
-			stopping_criteria.put(group, false);
-			lower_bounds.put(group, 0.0);
-			upper_bounds.put(group, 1.0);
-		}
-
-		// begin the method
-		boolean cont = true;
-		while (iteration <= n_max && cont) {
-			cont = false;
-			for (String group : stopping_criteria.keySet()) {
-				double tFR = targetFR.get(group);
-				double rFR = realizedFR.get(group);
-//				if (rFR > tFR) {
-//					stopping_criteria.put(group, true);
-//					continue;
-//				}
-
-				if (stopping_criteria.get(group))
-					continue;
-
-				cont = true;
-				if (Math.abs(tFR-rFR) <= neighborhood) {
-					stopping_criteria.put(group, true);
-					continue;
-				}
-
-				if (rFR < tFR) {
-					lower_bounds.put(group, newTargetCSL.get(group));
-				}
-				else {
-					upper_bounds.put(group, newTargetCSL.get(group));
-				}
-				double lb = lower_bounds.get(group);
-				double ub = upper_bounds.get(group);
-				newTargetCSL.put(group, (lb+ub)/2);
-
-				// update stopping criteria
-				if (ub-lb < epsilon)
-					stopping_criteria.put(group, true);
-			}
-
-			// update rCSL and rFR using simulation
-			Set<Material> newMaterials = pc.createPolicyCSL(materials, newTargetCSL);
-			sim = new Simulator(newMaterials);
-			sim.simulate();
-			realizedCSL = sim.getRealizedCSLCombined();
-			realizedFR = sim.getRealizedFRCombined();
-			System.out.println(iteration);
-			iteration++;
-		}
-		
-		for (String group : newTargetCSL.keySet()) {
-			stopping_criteria.put(group, false);
-			upper_bounds.put(group, 1.0);
-		}
-
-		// begin the method
-		cont = true;
-		iteration = 1;
-		while (iteration <= n_max && cont) {
-			cont = false;
-			for (String group : stopping_criteria.keySet()) {
-				double tCSL = targetCSL.get(group);
-				double rCSL = realizedCSL.get(group);
-
-				if (rCSL > tCSL) {
-					stopping_criteria.put(group, true);
-					continue;
-				}
-
-				if (stopping_criteria.get(group))
-					continue;
-
-				cont = true;
-				if (Math.abs(tCSL-rCSL) <= neighborhood) {
-					stopping_criteria.put(group, true);
-					continue;
-				}
-
-				if (rCSL < tCSL) {
-					lower_bounds.put(group, newTargetCSL.get(group));
-				}
-				else {
-					upper_bounds.put(group, newTargetCSL.get(group));
-				}
-				double lb = lower_bounds.get(group);
-				double ub = upper_bounds.get(group);
-				newTargetCSL.put(group, (lb+ub)/2);
-
-				// update stopping criteria
-				if (ub-lb < epsilon)
-					stopping_criteria.put(group, true);
+		return harmonizeService(pc, materials, targetCSL, targetFR, new IllinoisMethod());
+	}
+	
+	/**
+	 * Harmonizes the service levels like harmonizeService(pc, materials, targetCSL, targetFR), with a certain 
+	 * method to search the target CSL of a group.
+	 * 
+	 * @param pc			Creator of the policies.
+	 * @param materials		Materials to harmonize.
+	 * @param targetCSL		Target CSL per combined class.
+	 * @param targetFR		Target fill rate per combined class.
+	 * @param finder		Search method, e.g. Bisection, IllinoisMethod or BrentMethod.
+	 * @return				Simulator of all materials with the harmonized policies, simulated.
+	 */
+	private static Simulator harmonizeService(PolicyCreator pc, MaterialRegistry materials, 
+			Map<String, Double> targetCSL, Map<String, Double> targetFR, RootFinder finder) {
+		Harmonizer harmonizer = new Harmonizer(pc, materials, targetCSL, targetFR);
+		harmonizer.setRootFinder(finder);
+		harmonizer.setListener(new Harmonizer.Listener() {
+			@Override
+			public void onIteration(Harmonizer.Iteration iteration) {
+				System.out.println(iteration);
 			}
-
-			// update rCSL and rFR using simulation
-			Set<Material> newMaterials = pc.createPolicyCSL(materials, newTargetCSL);
-			sim = new Simulator(newMaterials);
-			sim.simulate();
-			realizedCSL = sim.getRealizedCSLCombined();
-			realizedFR = sim.getRealizedFRCombined();
-			System.out.println(iteration);
-			iteration++;
-		}
-
-		return sim;
+		});
+		return harmonizer.harmonize();
 	}
 	
 	public static void exportEfficiencyCurves(String file_name, PolicyCreator pc, 
-			Set<Material> materials, Set<String> groups) throws IOException {
+			MaterialRegistry materials, Set<String> groups) throws IOException {
+		exportEfficiencyCurves(file_name, pc, materials, groups, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Exports the realized CSL and total costs per group for target CSLs from 0.005 up to 1, with the same 
+	 * target for all groups. Consecutive targets often give every material the same policy, so the policies 
+	 * of every target are compared with those of the previous target, and only the distinct policy vectors are 
+	 * simulated, the other targets reuse the results of the previous one. The targets are swept in blocks on a 
+	 * pool; every block creates its policies one target at a time and has its own simulator, and the results 
+	 * are written in the order of the targets.
+	 * 
+	 * @param file_name	Prefix of the files in ./graphs, one file per group.
+	 * @param pc		Creator of the policies.
+	 * @param materials	Materials to simulate.
+	 * @param groups	Combined classes to export.
+	 * @param pool		Pool to sweep the blocks on, it may be shared by several exports.
+	 * @throws IOException	If writing a file fails.
+	 */
+	public static void exportEfficiencyCurves(String file_name, final PolicyCreator pc, 
+			final MaterialRegistry materials, Set<String> groups, ExecutorService pool) throws IOException {
 		double step_size = 0.005;
 		double start = 0.0;
 		double stop = 0.995;
 		double current = start;
 		
-		Map<String, List<Double>> mapTargetCSL = new TreeMap<>();
-		Map<String, List<Double>> mapRealizedCSL = new TreeMap<>();
-		Map<String, List<Double>> mapTotalCost = new TreeMap<>();
-		for (String group : groups) {			
-			mapTargetCSL.put(group, new LinkedList<Double>());
-			mapRealizedCSL.put(group, new LinkedList<Double>());
-			mapTotalCost.put(group, new LinkedList<Double>());
-		}
-		
+		// create target CSL's
+		List<Double> targets = new ArrayList<>();
 		while (current <= stop) {
-			// create target CSL's
 			current += step_size;
-			Map<String, Double> targetCSL = new TreeMap<>();
-			for (String group : groups) {
-				targetCSL.put(group, current);
-			}
-			
-			Set<Material> newMaterials = pc.createPolicyCSL(materials, targetCSL);
-			Simulator sim = new Simulator(newMaterials);
-			sim.simulate();
-			Map<String, Double> realizedCSLGroups = sim.getRealizedCSLCombined();
-			Map<String, Double> totalCostsGroup = sim.getTotalCostsCombined();
-			for (String group : groups) {
-				double realizedCSL = realizedCSLGroups.get(group);
-				List<Double> list = mapRealizedCSL.get(group);
-				list.add(realizedCSL);
-				double totalCosts = totalCostsGroup.get(group);
-				List<Double> list2 = mapTotalCost.get(group);
-				list2.add(totalCosts);
-				List<Double> list3 = mapTargetCSL.get(group);
-				list3.add(current);
+			targets.add(current);
+		}
+		final String[] names = groups.toArray(new String[groups.size()]);
+		final int points = targets.size();
+		final double[] targetCSL = new double[points];
+		for (int i = 0; i < points; i++)
+			targetCSL[i] = targets.get(i);
+		final double[][] realizedCSL = new double[points][names.length];
+		final double[][] totalCosts = new double[points][names.length];
+		
+		// every block sweeps its targets in order on its own simulator: it creates the policies of a target and 
+		// only simulates them if they differ from those of the previous target, otherwise the target reuses the 
+		// results of the previous one. A block only keeps the policies of the current and the previous target.
+		final GroupIndex combined = new GroupIndex(materials.toArray(), GroupIndex.COMBINED);
+		final int[] source = new int[points];
+		List<Callable<OutcomeCache>> tasks = new ArrayList<>();
+		for (int from = 0; from < points; from += TARGETS_PER_TASK) {
+			final int first = from;
+			final int last = Math.min(from + TARGETS_PER_TASK, points);
+			tasks.add(new Callable<OutcomeCache>() {
+				@Override
+				public OutcomeCache call() {
+					Simulator sim = new Simulator(materials);
+					sim.setOutcomeCache(new OutcomeCache(CACHED_OUTCOMES_PER_MATERIAL*Math.max(materials.size(), 1)));
+					double[] target = new double[combined.size()];
+					PolicyParameters previous = null;
+					if (first > 0) {
+						Arrays.fill(target, targetCSL[first - 1]);
+						previous = pc.createPoliciesCSL(materials, combined, target, null);
+					}
+					for (int i = first; i < last; i++) {
+						Arrays.fill(target, targetCSL[i]);
+						PolicyParameters policies = pc.createPoliciesCSL(materials, combined, target, null);
+						if (policies.equals(previous)) {
+							source[i] = i - 1;
+							continue;
+						}
+						source[i] = i;
+						previous = policies;
+						sim.setPolicies(policies);
+						sim.simulate();
+						Map<String, Double> realizedCSLGroups = sim.getRealizedCSLCombined();
+						Map<String, Double> totalCostsGroup = sim.getTotalCostsCombined();
+						for (int g = 0; g < names.length; g++) {
+							realizedCSL[i][g] = realizedCSLGroups.get(names[g]);
+							totalCosts[i][g] = totalCostsGroup.get(names[g]);
+						}
+					}
+					return sim.getOutcomeCache();
+				}
+			});
+		}
+		
+		long hits = 0;
+		long misses = 0;
+		for (OutcomeCache cache : invokeAll(pool, tasks)) {
+			hits += cache.hits();
+			misses += cache.misses();
+		}
+		// in order, so a chain of equal targets ends at the target that was simulated
+		int distinct = 0;
+		for (int i = 0; i < points; i++) {
+			if (source[i] == i) {
+				distinct++;
+			} else {
+				realizedCSL[i] = realizedCSL[source[i]];
+				totalCosts[i] = totalCosts[source[i]];
 			}
 		}
+		System.out.println(file_name + ": " + points + " targets, " + distinct + " distinct policy sets in " + 
+				tasks.size() + " blocks, outcome cache " + hits + " hits, " + misses + " misses");
 		
 		// print data
-		for (String group : groups) {
-			BufferedWriter bw = new BufferedWriter(new FileWriter("./graphs/"+file_name+"_"+group+".csv"));
+		for (int g = 0; g < names.length; g++) {
+			BufferedWriter bw = new BufferedWriter(new FileWriter("./graphs/"+file_name+"_"+names[g]+".csv"));
 			bw.write("Target CSL,Realized CSL,Total costs");
 			bw.newLine();
-			List<Double> listTarget = mapTargetCSL.get(group);
-			List<Double> listRealized = mapRealizedCSL.get(group);
-			List<Double> listTC = mapTotalCost.get(group);
-			for (int i = 0; i < listTarget.size(); i++) {
-				bw.write(listTarget.get(i) + "," + listRealized.get(i) + "," + listTC.get(i));
+			for (int i = 0; i < points; i++) {
+				bw.write(targetCSL[i] + "," + realizedCSL[i][g] + "," + totalCosts[i][g]);
 				bw.newLine();
 			}
 			bw.flush();
 			bw.close();
 		}
 	}
+	
+	private static <T> List<T> invokeAll(ExecutorService pool, List<Callable<T>> tasks) {
+		List<T> results = new ArrayList<>(tasks.size());
+		try {
+			for (Future<T> f : pool.invokeAll(tasks))
+				results.add(f.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Export interrupted.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+		return results;
+	}
 
-}
\ No newline at end of file
+}
@@ -2,23 +2,15 @@
  * 
  * @author Nemanja Milovanovic
  * 
- * Class representation of a spare part. Per part we register the associated ID, price, etc..
+ * Class representation of a spare part. Per part we register the associated ID, price, etc. in a MaterialSpec, 
+ * together with the reorder policy to use.
  *
  */
 public class Material implements Comparable<Material> {
 
-	// class variables describing the material
-	String id;
-	double price;
-	int stock;
-	double lead_time;
-	int crit_H;
-	int crit_M;
-	int crit_L;
-	int[] demand;
+	// class variables describing the material, the spec is shared by all copies with other policies
+	MaterialSpec spec;
 	ReorderPolicy policy;
-	String demandClass;
-	String priceClass;
 	
 	/**
 	 * Creates a material instance with the parameters given. The default reorder policy is (s,S),
@@ -37,60 +29,47 @@ public class Material implements Comparable<Material> {
 	 */
 	public Material(String id, double price, int min_stock, int max_stock, double lead_time, 
 			int crit_H, int crit_M, int crit_L, int[] demand, String demandClass, String priceClass) {
-		this.id = id;
-		this.price = price;
-		this.lead_time = lead_time;
-		this.crit_H = crit_H;
-		this.crit_M = crit_M;
-		this.crit_L = crit_L;
-		this.demand = demand;
-		this.demandClass = demandClass;
-		this.priceClass = priceClass;
-		
-		policy = new PolicySS(min_stock-1, max_stock);
+		this(new MaterialSpec(id, price, lead_time, crit_H, crit_M, crit_L, demand, demandClass, priceClass), 
+				new PolicySS(min_stock-1, max_stock));
 	}
 	
 	public Material(String id, double price, ReorderPolicy policy, double lead_time, int crit_H, 
 			int crit_M, int crit_L, int[] demand, String demandClass, String priceClass) {
-		this.id = id;
-		this.price = price;
-		this.policy = policy;
-		this.lead_time = lead_time;
-		this.crit_H = crit_H;
-		this.crit_M = crit_M;
-		this.crit_L = crit_L;
-		this.demand = demand;
-		this.demandClass = demandClass;
-		this.priceClass = priceClass;
+		this(new MaterialSpec(id, price, lead_time, crit_H, crit_M, crit_L, demand, demandClass, priceClass), 
+				policy);
 	}
 	
 	public Material(Material m, ReorderPolicy policy) {
-		this.id = m.getId();
-		this.price = m.getPrice();
-		this.lead_time = m.getLeadTime();
-		this.crit_H = m.getCritH();
-		this.crit_M = m.getCritM();
-		this.crit_L = m.getCritL();
-		this.demand = m.getDemand();
-		this.demandClass = m.getDemandClass();
-		this.priceClass = m.getPriceClass();
+		this(m.spec, policy);
+	}
+	
+	public Material(MaterialSpec spec, ReorderPolicy policy) {
+		this.spec = spec;
 		this.policy = policy;
 	}
 	
+	public MaterialSpec getSpec() {
+		return spec;
+	}
+	
+	public ReorderPolicy getPolicy() {
+		return policy;
+	}
+	
 	public int[] getDemand() {
-		return demand;
+		return spec.getDemand();
 	}
 	
 	public String getDemandClass() {
-		return demandClass;
+		return spec.getDemandClass();
 	}
 	
 	public String getPriceClass() {
-		return priceClass;
+		return spec.getPriceClass();
 	}
 	
 	public String getCombinedClass() {
-		return priceClass + demandClass + criticality();
+		return spec.getCombinedClass();
 	}
 	
 	public boolean doReorder() {
@@ -102,7 +81,7 @@ public class Material implements Comparable<Material> {
 	}
 	
 	public int demand(int day) {
-		return demand[day];
+		return spec.getDemand()[day];
 	}
 	
 	public int consume(int amount) {
@@ -118,11 +97,20 @@ public class Material implements Comparable<Material> {
 	}
 
 	public String getId() {
-		return id;
+		return spec.getId();
+	}
+	
+	/**
+	 * Returns the id as a number, it is parsed once when the material is created.
+	 * 
+	 * @return	Numeric id.
+	 */
+	public int getNumericId() {
+		return spec.getNumericId();
 	}
 
 	public double getPrice() {
-		return price;
+		return spec.getPrice();
 	}
 
 	public int getInventoryLevel() {
@@ -142,26 +130,26 @@ public class Material implements Comparable<Material> {
 	}
 
 	public double getLeadTime() {
-		return lead_time;
+		return spec.getLeadTime();
 	}
 	
 	public int getCritH() {
-		return crit_H;
+		return spec.getCritH();
 	}
 
 	public int getCritM() {
-		return crit_M;
+		return spec.getCritM();
 	}
 
 	public int getCritL() {
-		return crit_L;
+		return spec.getCritL();
 	}
 	
 	@Override
 	public String toString() {
 		String s = "[";
-		s += "id: " + id + ", ";
-		s += "price: " + price;
+		s += "id: " + getId() + ", ";
+		s += "price: " + getPrice();
 		s += "]";
 		
 		return s;
@@ -186,35 +174,20 @@ public class Material implements Comparable<Material> {
 	 * @return	Criticality class.
 	 */
 	public String criticality() {
-		if (crit_H > 0)
-			return "1";
-		if (crit_M > 0)
-			return "2";
-		if (crit_L > 0)
-			return "3";
-		return "4";
+		return spec.criticality();
 	}
 	
 	public int totalDemand() {
-		int sum = 0;
-		for (int i = 0; i < demand.length; i++)
-			sum += demand[i];
-		return sum;
+		return spec.totalDemand();
 	}
 	
 	public int totalPositiveDemand() {
-		int sum = 0;
-		for (int i = 0; i < demand.length; i++) {
-			if (demand[i] <= 0)
-				continue;
-			sum += demand[i];
-		}
-		return sum;
+		return spec.totalPositiveDemand();
 	}
 
 	@Override
 	public int compareTo(Material that) {
-		return Integer.parseInt(id) - Integer.parseInt(that.getId());
+		return Integer.compare(spec.getNumericId(), that.spec.getNumericId());
 	}
 	
 }
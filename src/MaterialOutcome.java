@@ -0,0 +1,65 @@
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Performance counters and costs of a single material after a run, as recorded by Performance. A material 
+ * never interacts with the others, so its outcome only depends on its spec and its reorder policy, and a 
+ * saved outcome can be restored into another run with the same policy instead of simulating the material.
+ *
+ */
+public final class MaterialOutcome {
+
+	private final int countCycles;
+	private final int countStockouts;
+	private final int totalDemand;
+	private final int deniedDemand;
+	private final int backorders;
+	private final double holdingCosts;
+	private final double fixedCosts;
+	private final double marginalCosts;
+
+	public MaterialOutcome(int countCycles, int countStockouts, int totalDemand, int deniedDemand, int backorders,
+			double holdingCosts, double fixedCosts, double marginalCosts) {
+		this.countCycles = countCycles;
+		this.countStockouts = countStockouts;
+		this.totalDemand = totalDemand;
+		this.deniedDemand = deniedDemand;
+		this.backorders = backorders;
+		this.holdingCosts = holdingCosts;
+		this.fixedCosts = fixedCosts;
+		this.marginalCosts = marginalCosts;
+	}
+
+	public int countCycles() {
+		return countCycles;
+	}
+
+	public int countStockouts() {
+		return countStockouts;
+	}
+
+	public int totalDemand() {
+		return totalDemand;
+	}
+
+	public int deniedDemand() {
+		return deniedDemand;
+	}
+
+	public int backorders() {
+		return backorders;
+	}
+
+	public double holdingCosts() {
+		return holdingCosts;
+	}
+
+	public double fixedCosts() {
+		return fixedCosts;
+	}
+
+	public double marginalCosts() {
+		return marginalCosts;
+	}
+
+}
@@ -0,0 +1,183 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Immutable collection of materials in which every material has a dense index from 0 up to size() - 1. The
+ * materials are ordered by numeric id, like a TreeSet of materials, so iterating over the indices gives the
+ * sorted order without comparing materials. Simulator, Performance and the policy creators address
+ * materials by this index, so per-material data can be kept in arrays.
+ *
+ */
+public class MaterialRegistry implements Iterable<Material> {
+
+	private Material[] materials;
+	private int[] numericIds;
+
+	/**
+	 * Creates a registry of a collection of materials. Like a set, only the first material with a certain id
+	 * is kept.
+	 *
+	 * @param materials	Materials to register.
+	 */
+	public MaterialRegistry(Collection<Material> materials) {
+		// already sorted input, e.g. a TreeSet, is a single run for the merge sort
+		Material[] sorted = materials.toArray(new Material[materials.size()]);
+		Arrays.sort(sorted);
+
+		// drop duplicate ids, the sort is stable so the first one is kept
+		int n = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (n == 0 || sorted[i].getNumericId() != sorted[n - 1].getNumericId())
+				sorted[n++] = sorted[i];
+		}
+		this.materials = Arrays.copyOf(sorted, n);
+
+		numericIds = new int[n];
+		for (int i = 0; i < n; i++)
+			numericIds[i] = this.materials[i].getNumericId();
+	}
+
+	private MaterialRegistry(Material[] materials, int[] numericIds) {
+		this.materials = materials;
+		this.numericIds = numericIds;
+	}
+
+	/**
+	 * Creates a registry of the same materials with other reorder policies. The indices do not change.
+	 *
+	 * @param policies	Reorder policy per material index.
+	 * @return			Registry of the materials with the new policies.
+	 */
+	public MaterialRegistry withPolicies(ReorderPolicy[] policies) {
+		if (policies.length != materials.length)
+			throw new IllegalArgumentException("Expected " + materials.length + " policies, got " + policies.length);
+		Material[] copy = new Material[materials.length];
+		for (int i = 0; i < copy.length; i++)
+			copy[i] = new Material(materials[i], policies[i]);
+		return new MaterialRegistry(copy, numericIds);
+	}
+
+	/**
+	 * Returns the number of materials.
+	 *
+	 * @return	Number of materials.
+	 */
+	public int size() {
+		return materials.length;
+	}
+
+	/**
+	 * Returns the material with a certain index.
+	 *
+	 * @param index	Material index.
+	 * @return		Material.
+	 */
+	public Material get(int index) {
+		return materials[index];
+	}
+
+	/**
+	 * Returns the index of the material with the same id as m.
+	 *
+	 * @param m	Material.
+	 * @return	Material index, or -1 if no material with this id is registered.
+	 */
+	public int indexOf(Material m) {
+		int index = Arrays.binarySearch(numericIds, m.getNumericId());
+		return index < 0 ? -1 : index;
+	}
+
+	/**
+	 * Returns the materials ordered by index.
+	 *
+	 * @return	New array with the materials.
+	 */
+	public Material[] toArray() {
+		return materials.clone();
+	}
+
+	/**
+	 * Returns the materials as a sorted set, for code working on sets of materials.
+	 *
+	 * @return	New set with the materials.
+	 */
+	public Set<Material> toSet() {
+		return new TreeSet<>(Arrays.asList(materials));
+	}
+
+	/**
+	 * Looks up a value per material by its combined class, e.g. the target CSL of its group.
+	 *
+	 * @param mapCombined	Value per combined class.
+	 * @return				Value per material index.
+	 */
+	public double[] byCombinedClass(Map<String, Double> mapCombined) {
+		double[] values = new double[materials.length];
+		for (int i = 0; i < values.length; i++)
+			values[i] = mapCombined.get(materials[i].getCombinedClass());
+		return values;
+	}
+
+	/**
+	 * Splits the materials by combined class. Every part keeps the order of the materials, but has its own 
+	 * indices starting at 0.
+	 * 
+	 * @return	Registry of the materials per combined class, ordered by combined class.
+	 */
+	public Map<String, MaterialRegistry> groupByCombinedClass() {
+		Map<String, List<Integer>> members = new TreeMap<>();
+		for (int i = 0; i < materials.length; i++) {
+			String group = materials[i].getCombinedClass();
+			List<Integer> list = members.get(group);
+			if (list == null) {
+				list = new ArrayList<>();
+				members.put(group, list);
+			}
+			list.add(i);
+		}
+		
+		Map<String, MaterialRegistry> parts = new TreeMap<>();
+		for (Map.Entry<String, List<Integer>> e : members.entrySet()) {
+			List<Integer> list = e.getValue();
+			Material[] part = new Material[list.size()];
+			int[] partIds = new int[list.size()];
+			for (int j = 0; j < part.length; j++) {
+				part[j] = materials[list.get(j)];
+				partIds[j] = numericIds[list.get(j)];
+			}
+			parts.put(e.getKey(), new MaterialRegistry(part, partIds));
+		}
+		return parts;
+	}
+
+	@Override
+	public Iterator<Material> iterator() {
+		return new Iterator<Material>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < materials.length;
+			}
+
+			@Override
+			public Material next() {
+				if (next == materials.length)
+					throw new NoSuchElementException();
+				return materials[next++];
+			}
+		};
+	}
+
+}
@@ -0,0 +1,178 @@
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Read-only description of a spare part: ID, price, lead-time, criticality, historical demand and classes. A
+ * spec never changes after construction, so one spec can back any number of Material instances with different
+ * reorder policies, and any number of simulations at the same time. The demand array is shared, not copied,
+ * and must not be modified.
+ *
+ * The demand statistics and the lead-time demand distribution of the policy creators are derived from the demand
+ * and the lead-time only. They are computed on first use and kept, a material with another demand or lead-time
+ * is a new spec, so they never go stale.
+ *
+ */
+public final class MaterialSpec {
+
+	private final String id;
+	private final int numericId;
+	private final double price;
+	private final double lead_time;
+	private final int crit_H;
+	private final int crit_M;
+	private final int crit_L;
+	private final int[] demand;
+	private final String demandClass;
+	private final String priceClass;
+	private final String criticality;
+	private final String combinedClass;
+	private final int totalDemand;
+	private final int totalPositiveDemand;
+
+	// computed on first use, racing threads compute equal instances
+	private volatile DemandStatistics statistics;
+	private volatile LeadTimeDemand leadTimeDemand;
+
+	/**
+	 * Creates a material spec.
+	 *
+	 * @param id			ID for the material, a number.
+	 * @param price			Price per unit.
+	 * @param lead_time		Material lead-time per order.
+	 * @param crit_H		Number of components in critical class H that need the material.
+	 * @param crit_M		Number of components in critical class M that need the material.
+	 * @param crit_L		Number of components in critical class L that need the material.
+	 * @param demand		Historical demand.
+	 * @param demandClass	Demand class.
+	 * @param priceClass	Price class.
+	 */
+	public MaterialSpec(String id, double price, double lead_time, int crit_H, int crit_M, int crit_L,
+			int[] demand, String demandClass, String priceClass) {
+		this.id = id;
+		this.numericId = Integer.parseInt(id);
+		this.price = price;
+		this.lead_time = lead_time;
+		this.crit_H = crit_H;
+		this.crit_M = crit_M;
+		this.crit_L = crit_L;
+		this.demand = demand;
+		this.demandClass = demandClass;
+		this.priceClass = priceClass;
+
+		if (crit_H > 0)
+			criticality = "1";
+		else if (crit_M > 0)
+			criticality = "2";
+		else if (crit_L > 0)
+			criticality = "3";
+		else
+			criticality = "4";
+		combinedClass = priceClass + demandClass + criticality;
+
+		// demand totals are used as weights for every run, so they are computed once
+		int sum = 0;
+		int positive = 0;
+		for (int i = 0; i < demand.length; i++) {
+			sum += demand[i];
+			if (demand[i] > 0)
+				positive += demand[i];
+		}
+		totalDemand = sum;
+		totalPositiveDemand = positive;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public int getNumericId() {
+		return numericId;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	public double getLeadTime() {
+		return lead_time;
+	}
+
+	public int getCritH() {
+		return crit_H;
+	}
+
+	public int getCritM() {
+		return crit_M;
+	}
+
+	public int getCritL() {
+		return crit_L;
+	}
+
+	public int[] getDemand() {
+		return demand;
+	}
+
+	public String getDemandClass() {
+		return demandClass;
+	}
+
+	public String getPriceClass() {
+		return priceClass;
+	}
+
+	/**
+	 * Returns the criticality class, see Material.criticality().
+	 *
+	 * @return	Criticality class.
+	 */
+	public String criticality() {
+		return criticality;
+	}
+
+	public String getCombinedClass() {
+		return combinedClass;
+	}
+
+	public int totalDemand() {
+		return totalDemand;
+	}
+
+	/**
+	 * Returns the total demand, ignoring negative demand (returns).
+	 *
+	 * @return	Total positive demand.
+	 */
+	public int totalPositiveDemand() {
+		return totalPositiveDemand;
+	}
+
+	/**
+	 * Returns the statistics of the demand, computed on the first call.
+	 *
+	 * @return	Demand statistics.
+	 */
+	public DemandStatistics statistics() {
+		DemandStatistics s = statistics;
+		if (s == null) {
+			s = new DemandStatistics(demand, lead_time);
+			statistics = s;
+		}
+		return s;
+	}
+
+	/**
+	 * Returns the empirical distribution of the lead-time demand, computed on the first call.
+	 *
+	 * @return	Lead-time demand distribution.
+	 */
+	public LeadTimeDemand leadTimeDemand() {
+		LeadTimeDemand d = leadTimeDemand;
+		if (d == null) {
+			d = new LeadTimeDemand(demand, lead_time);
+			leadTimeDemand = d;
+		}
+		return d;
+	}
+
+}
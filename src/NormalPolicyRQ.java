@@ -6,6 +6,10 @@ import org.apache.commons.math3.distribution.NormalDistribution;
 
 public class NormalPolicyRQ implements PolicyCreator {
 
+	// standard normal distribution, shared by all calls as it is never sampled from
+	private static final NormalDistribution STANDARD_NORMAL = new NormalDistribution(null, 0, 1,
+			NormalDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY);
+
 	public NormalPolicyRQ() {
 		// TODO Auto-generated constructor stub
 	}
@@ -13,11 +17,10 @@ public class NormalPolicyRQ implements PolicyCreator {
 	@Override
 	public Set<Material> createPolicyCSL(Set<Material> materials, Map<String, Double> mapTargetCSL) {
 		Set<Material> normalMaterials = new TreeSet<>();
-		PolicyCreator pc = new NormalPolicyRQ();
 		
 		for (Material m : materials) {
 			// estimate policy
-			ReorderPolicy policy = pc.createPolicyCSL(m, mapTargetCSL.get(m.getCombinedClass()));
+			ReorderPolicy policy = createPolicyCSL(m, mapTargetCSL.get(m.getCombinedClass()));
 			Material material = new Material(m, policy);
 			normalMaterials.add(material);
 		}
@@ -27,20 +30,16 @@ public class NormalPolicyRQ implements PolicyCreator {
 
 	@Override
 	public ReorderPolicy createPolicyCSL(Material m, double target) {
-		int[] demand = m.getDemand();
-		double leadTime = m.getLeadTime();
+		DemandStatistics statistics = m.getSpec().statistics();
 		if (target == 1.0)
 			target -= 1e-4;
 		
-		double mean = mean(demand);
-		double std = std(demand);
-		
-		double mu_prime = mean*leadTime;
-		double sigma_prime = std*Math.sqrt(leadTime);
+		double mean = statistics.mean();
+		double mu_prime = statistics.leadTimeMean();
+		double sigma_prime = statistics.leadTimeStd();
 		
 		// determine reorder point
-		NormalDistribution normdist = new NormalDistribution();
-		int reorder_point = (int)Math.ceil(mu_prime + sigma_prime*normdist.inverseCumulativeProbability(target));
+		int reorder_point = (int)Math.ceil(mu_prime + sigma_prime*STANDARD_NORMAL.inverseCumulativeProbability(target));
 		if (reorder_point < 1)
 			reorder_point = 1;
 		
@@ -52,23 +51,6 @@ public class NormalPolicyRQ implements PolicyCreator {
 		ReorderPolicy policy = new PolicyRQ(reorder_point, quantity);
 		return policy;
 	}
-	
-	private double mean(int[] demand) {
-		double sum = 0.0;
-		for (int i = 0; i < demand.length; i++) {
-			sum += demand[i];
-		}
-		return sum/demand.length;
-	}
-	
-	private double std(int[] demand) {
-		double mean = mean(demand);
-		double sum = 0.0;
-		for (int i = 0; i < demand.length; i++) {
-			sum += Math.pow(demand[i] - mean, 2);
-		}
-		return Math.sqrt(sum/(demand.length - 1));
-	}
 
 	@Override
 	public ReorderPolicy createPolicyFR(Material m, double target) {
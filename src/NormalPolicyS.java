@@ -6,6 +6,10 @@ import org.apache.commons.math3.distribution.NormalDistribution;
 
 public class NormalPolicyS implements PolicyCreator {
 
+	// standard normal distribution, shared by all calls as it is never sampled from
+	private static final NormalDistribution STANDARD_NORMAL = new NormalDistribution(null, 0, 1,
+			NormalDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY);
+
 	public NormalPolicyS() {
 		// nothing to initialize
 	}
@@ -13,11 +17,10 @@ public class NormalPolicyS implements PolicyCreator {
 	@Override
 	public Set<Material> createPolicyCSL(Set<Material> materials, Map<String, Double> mapTargetCSL) {
 		Set<Material> normalMaterials = new TreeSet<>();
-		PolicyCreator pc = new NormalPolicyS();
 		
 		for (Material m : materials) {
 			// estimate policy
-			ReorderPolicy policy = pc.createPolicyCSL(m, mapTargetCSL.get(m.getCombinedClass()));
+			ReorderPolicy policy = createPolicyCSL(m, mapTargetCSL.get(m.getCombinedClass()));
 			Material material = new Material(m, policy);
 			normalMaterials.add(material);
 		}
@@ -27,23 +30,23 @@ public class NormalPolicyS implements PolicyCreator {
 	
 	@Override
 	public ReorderPolicy createPolicyCSL(Material m, double target) {
-		int[] demand = m.getDemand();
-		double leadTime = m.getLeadTime();
+		DemandStatistics statistics = m.getSpec().statistics();
 		if (target == 1.0)
 			target -= 1e-4;
 		
-		double mean = mean(demand);
-		double std = std(demand);
-		
-		double mu_prime = mean*leadTime;
-		double sigma_prime = std*Math.sqrt(leadTime);
+		double mu_prime = statistics.leadTimeMean();
+		double sigma_prime = statistics.leadTimeStd();
 		
+		// smallest base stock of at least 1 with cdf(baseStock-1) >= target, i.e. ceil(mu' + sigma'*z) + 1,
+		// corrected by the same comparison for rounding
 		int baseStock = 1;
-		NormalDistribution normdist = new NormalDistribution();
-		double currentCSL = normdist.cumulativeProbability(normalize(baseStock-1, mu_prime, sigma_prime));
-		while (currentCSL < target) {
-			baseStock++;
-			currentCSL = normdist.cumulativeProbability(normalize(baseStock-1, mu_prime, sigma_prime));
+		if (cdf(baseStock, mu_prime, sigma_prime) < target) {
+			double x = mu_prime + sigma_prime*STANDARD_NORMAL.inverseCumulativeProbability(target);
+			baseStock = Math.max((int)Math.ceil(x) + 1, 2);
+			while (baseStock > 2 && cdf(baseStock-1, mu_prime, sigma_prime) >= target)
+				baseStock--;
+			while (cdf(baseStock, mu_prime, sigma_prime) < target)
+				baseStock++;
 		}
 		
 		ReorderPolicy policy = new PolicySS(baseStock, baseStock);
@@ -56,21 +59,8 @@ public class NormalPolicyS implements PolicyCreator {
 		return null;
 	}
 	
-	private double mean(int[] demand) {
-		double sum = 0.0;
-		for (int i = 0; i < demand.length; i++) {
-			sum += demand[i];
-		}
-		return sum/demand.length;
-	}
-	
-	private double std(int[] demand) {
-		double mean = mean(demand);
-		double sum = 0.0;
-		for (int i = 0; i < demand.length; i++) {
-			sum += Math.pow(demand[i] - mean, 2);
-		}
-		return Math.sqrt(sum/(demand.length - 1));
+	private double cdf(int baseStock, double mu, double sigma) {
+		return STANDARD_NORMAL.cumulativeProbability(normalize(baseStock-1, mu, sigma));
 	}
 	
 	private double normalize(double x, double mu, double sigma) {
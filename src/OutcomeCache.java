@@ -0,0 +1,209 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Bounded cache of simulated material outcomes, with the least recently used entry evicted first. An outcome 
+ * only depends on the material and the integer parameters of its policy, so while harmonizing or sweeping 
+ * target service levels most materials keep their policy and need not be simulated again. A Simulator with a 
+ * cache looks up every material before the run and only simulates the misses.
+ *
+ * Besides the outcome within the horizon, an entry keeps the time of the first event of the material past the 
+ * horizon and the outcome after that event, since a run ends with the first such event of all materials. 
+ * The cache is safe to use from several threads.
+ *
+ */
+public class OutcomeCache {
+
+	private final int capacity;
+	private final Map<Key, CachedOutcome> entries;
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param capacity	Maximum number of outcomes to keep.
+	 */
+	public OutcomeCache(final int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<Key, CachedOutcome>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedOutcome> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Creates the key of a material with its policy in a certain state.
+	 *
+	 * @param m		Material.
+	 * @param state	Policies of the materials.
+	 * @param index	Material index in state.
+	 * @return		Key of the outcome.
+	 */
+	public static Key key(Material m, InventoryState state, int index) {
+		int orderSize = state.isOrderUpTo(index) ? state.maxStock(index) : state.quantity(index);
+		return new Key(m.getSpec(), state.isOrderUpTo(index), state.reorderPoint(index), orderSize, 
+				state.initialLevel(index), state.initialPosition(index));
+	}
+
+	/**
+	 * Looks up an outcome and counts a hit or a miss.
+	 *
+	 * @param key	Key of the outcome.
+	 * @return		Cached outcome, or null if it is not cached.
+	 */
+	public synchronized CachedOutcome get(Key key) {
+		CachedOutcome entry = entries.get(key);
+		if (entry == null)
+			misses++;
+		else
+			hits++;
+		return entry;
+	}
+
+	public synchronized void put(Key key, CachedOutcome entry) {
+		entries.put(key, entry);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public synchronized long hits() {
+		return hits;
+	}
+
+	public synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the fraction of the lookups that was a hit.
+	 *
+	 * @return	Hit rate, 0 if there were no lookups.
+	 */
+	public synchronized double hitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0.0 : (double) hits/lookups;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "outcome cache: " + entries.size() + "/" + capacity + " entries, " + hits + " hits, " + misses + " misses";
+	}
+
+	/**
+	 * Material with the type and parameters of its policy and its starting inventory. Materials are compared 
+	 * by spec, so copies of a material with other policies share their entries.
+	 */
+	public static final class Key {
+
+		private final MaterialSpec spec;
+		private final boolean orderUpTo;
+		private final int reorderPoint;
+		private final int orderSize;
+		private final int initialLevel;
+		private final int initialPosition;
+		private final int hash;
+
+		/**
+		 * Creates a key.
+		 *
+		 * @param spec				Material spec.
+		 * @param orderUpTo			True for an (s,S) policy, false for an (R,Q) policy.
+		 * @param reorderPoint		Reorder point s or R.
+		 * @param orderSize			Maximum stock S for (s,S), order quantity Q for (R,Q).
+		 * @param initialLevel		Starting inventory level.
+		 * @param initialPosition	Starting inventory position.
+		 */
+		public Key(MaterialSpec spec, boolean orderUpTo, int reorderPoint, int orderSize, int initialLevel, 
+				int initialPosition) {
+			this.spec = spec;
+			this.orderUpTo = orderUpTo;
+			this.reorderPoint = reorderPoint;
+			this.orderSize = orderSize;
+			this.initialLevel = initialLevel;
+			this.initialPosition = initialPosition;
+
+			int h = System.identityHashCode(spec);
+			h = 31*h + (orderUpTo ? 1 : 0);
+			h = 31*h + reorderPoint;
+			h = 31*h + orderSize;
+			h = 31*h + initialLevel;
+			h = 31*h + initialPosition;
+			hash = h;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+			Key that = (Key) o;
+			return spec == that.spec && orderUpTo == that.orderUpTo && reorderPoint == that.reorderPoint 
+					&& orderSize == that.orderSize && initialLevel == that.initialLevel 
+					&& initialPosition == that.initialPosition;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+	}
+
+	/**
+	 * Outcome of a material within the horizon, and the first event past the horizon.
+	 */
+	public static final class CachedOutcome {
+
+		private final MaterialOutcome outcome;
+		private final double nextEventTime;
+		private final MaterialOutcome outcomeAfterNextEvent;
+
+		/**
+		 * Creates an entry.
+		 *
+		 * @param outcome				Outcome of the events before the horizon.
+		 * @param nextEventTime			Time of the first event past the horizon, infinite if there is none.
+		 * @param outcomeAfterNextEvent	Outcome after that event as well, null if there is none.
+		 */
+		public CachedOutcome(MaterialOutcome outcome, double nextEventTime, MaterialOutcome outcomeAfterNextEvent) {
+			this.outcome = outcome;
+			this.nextEventTime = nextEventTime;
+			this.outcomeAfterNextEvent = outcomeAfterNextEvent;
+		}
+
+		public MaterialOutcome outcome() {
+			return outcome;
+		}
+
+		public double nextEventTime() {
+			return nextEventTime;
+		}
+
+		public MaterialOutcome outcomeAfterNextEvent() {
+			return outcomeAfterNextEvent;
+		}
+
+	}
+
+}
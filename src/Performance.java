@@ -1,193 +1,214 @@
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
 
 /**
  * 
  * @author Nemanja Milovanovic
  * 
- * Measures performance of the implemented policy.
+ * Measures performance of the implemented policy. Materials are addressed by their index in the simulated 
+ * material array, and all counters are kept in primitive arrays, so recording an event does not allocate. 
+ * Events only touch the entries of their own material; totals per group follow from rollUp() at the end.
  *
  */
 public class Performance {
 	
 	// general
-	Set<Material> materials;
+	Material[] materials;
+	GroupIndex[] groups;
 	
 	// CSL
-	Map<Material, Integer> countCycles;
-	Map<Material, Integer> countStockouts;
+	int[] countCycles;
+	int[] countStockouts;
 	
 	// fill rate
-	Map<Material, Integer> totalDemand;
-	Map<Material, Integer> deniedDemand;
+	int[] totalDemand;
+	int[] deniedDemand;
+	
+	// number of events after which the material has backorders
+	int[] backorders;
 	
 	// costs
 	double totalHoldingCosts = 0.0;
 	double totalFixedCosts = 0.0;
 	double totalMarginalCosts = 0.0;
 	
-	Map<Material, Double> holdingCosts;
-	Map<Material, Double> fixedCosts;
-	Map<Material, Double> marginalCosts;
-	
-	Map<String, Double> holdingCostsCombined;
-	Map<String, Double> holdingCostsPrice;
-	Map<String, Double> holdingCostsDemand;
-	Map<String, Double> holdingCostsCrit;
-	
-	Map<String, Double> fixedCostsCombined;
-	Map<String, Double> fixedCostsPrice;
-	Map<String, Double> fixedCostsDemand;
-	Map<String, Double> fixedCostsCrit;
+	double[] holdingCosts;
+	double[] fixedCosts;
+	double[] marginalCosts;
 	
-	Map<String, Double> marginalCostsCombined;
-	Map<String, Double> marginalCostsPrice;
-	Map<String, Double> marginalCostsDemand;
-	Map<String, Double> marginalCostsCrit;
+	// totals and group costs are filled in by rollUp(), group costs are indexed by classification and group id
+	double[][] holdingCostsGroup;
+	double[][] fixedCostsGroup;
+	double[][] marginalCostsGroup;
 	
-	public Performance(Set<Material> materials) {
+	public Performance(Material[] materials) {
 		// general
 		this.materials = materials;
+		int n = materials.length;
+		groups = new GroupIndex[4];
+		groups[GroupIndex.PRICE] = new GroupIndex(materials, GroupIndex.PRICE);
+		groups[GroupIndex.DEMAND] = new GroupIndex(materials, GroupIndex.DEMAND);
+		groups[GroupIndex.CRITICALITY] = new GroupIndex(materials, GroupIndex.CRITICALITY);
+		groups[GroupIndex.COMBINED] = new GroupIndex(materials, GroupIndex.COMBINED);
 		
 		// CSL
-		countCycles = new HashMap<>();
-		countStockouts = new HashMap<>();
+		countCycles = new int[n];
+		countStockouts = new int[n];
 		
 		// FR
-		totalDemand = new HashMap<>();
-		deniedDemand = new HashMap<>();
+		totalDemand = new int[n];
+		deniedDemand = new int[n];
+		backorders = new int[n];
 		
 		// costs
-		holdingCosts = new HashMap<>();
-		fixedCosts = new HashMap<>();
-		marginalCosts = new HashMap<>();
-		
-		holdingCostsCombined = new TreeMap<>();
-		holdingCostsPrice = new TreeMap<>();
-		holdingCostsDemand = new TreeMap<>();
-		holdingCostsCrit = new TreeMap<>();
-		
-		fixedCostsCombined = new TreeMap<>();
-		fixedCostsPrice = new TreeMap<>();
-		fixedCostsDemand = new TreeMap<>();
-		fixedCostsCrit = new TreeMap<>();
+		holdingCosts = new double[n];
+		fixedCosts = new double[n];
+		marginalCosts = new double[n];
 		
-		marginalCostsCombined = new TreeMap<>();
-		marginalCostsPrice = new TreeMap<>();
-		marginalCostsDemand = new TreeMap<>();
-		marginalCostsCrit = new TreeMap<>();
-		
-		for (Material m : materials) {
-			countCycles.put(m, 1);
-			countStockouts.put(m, 0);
-			
-			totalDemand.put(m, 0);
-			deniedDemand.put(m, 0);
-			
-			holdingCosts.put(m, 0.0);
-			fixedCosts.put(m, 0.0);
-			marginalCosts.put(m, 0.0);
-			
-			holdingCostsCombined.put(m.getCombinedClass(), 0.0);
-			holdingCostsPrice.put(m.getPriceClass(), 0.0);
-			holdingCostsDemand.put(m.getDemandClass(), 0.0);
-			holdingCostsCrit.put(m.criticality(), 0.0);
-			
-			fixedCostsCombined.put(m.getCombinedClass(), 0.0);
-			fixedCostsPrice.put(m.getPriceClass(), 0.0);
-			fixedCostsDemand.put(m.getDemandClass(), 0.0);
-			fixedCostsCrit.put(m.criticality(), 0.0);
-			
-			marginalCostsCombined.put(m.getCombinedClass(), 0.0);
-			marginalCostsPrice.put(m.getPriceClass(), 0.0);
-			marginalCostsDemand.put(m.getDemandClass(), 0.0);
-			marginalCostsCrit.put(m.criticality(), 0.0);
+		holdingCostsGroup = new double[groups.length][];
+		fixedCostsGroup = new double[groups.length][];
+		marginalCostsGroup = new double[groups.length][];
+		for (int c = 0; c < groups.length; c++) {
+			holdingCostsGroup[c] = new double[groups[c].size()];
+			fixedCostsGroup[c] = new double[groups[c].size()];
+			marginalCostsGroup[c] = new double[groups[c].size()];
 		}
+		reset();
+	}
+	
+	/**
+	 * Clears all counters and costs, so the instance can record another run of the same materials.
+	 */
+	public void reset() {
+		Arrays.fill(countCycles, 1);
+		Arrays.fill(countStockouts, 0);
+		Arrays.fill(totalDemand, 0);
+		Arrays.fill(deniedDemand, 0);
+		Arrays.fill(backorders, 0);
+		Arrays.fill(holdingCosts, 0.0);
+		Arrays.fill(fixedCosts, 0.0);
+		Arrays.fill(marginalCosts, 0.0);
+		rollUp();
 	}
 	
-	public void startCycle(Material m) {
-		countCycles.put(m, countCycles.get(m) + 1);
+	public void startCycle(int m) {
+		countCycles[m]++;
 	}
 	
-	public void stockout(Material m) {
-		countStockouts.put(m, countStockouts.get(m) + 1);
+	public void stockout(int m) {
+		countStockouts[m]++;
 	}
 	
-	public void deniedDemand(Material m, int quantity) {
-		deniedDemand.put(m, deniedDemand.get(m) + quantity);
+	public void deniedDemand(int m, int quantity) {
+		deniedDemand[m] += quantity;
 	}
 	
-	public void addDemand(Material m, int quantity) {
-		totalDemand.put(m, totalDemand.get(m) + quantity);
+	public void addDemand(int m, int quantity) {
+		totalDemand[m] += quantity;
 	}
 	
-	public double CSL(Material m) {
-		double csl = 1 - (double)countStockouts.get(m)/countCycles.get(m);
+	public void backorder(int m) {
+		backorders[m]++;
+	}
+	
+	public int getBackorders(int m) {
+		return backorders[m];
+	}
+	
+	public double CSL(int m) {
+		double csl = 1 - (double)countStockouts[m]/countCycles[m];
 		return csl;
 	}
 	
-	public double fillRate(Material m) {
-		return 1 - (double)deniedDemand.get(m)/totalDemand.get(m);
+	public double fillRate(int m) {
+		return 1 - (double)deniedDemand[m]/totalDemand[m];
 	}
 	
 	public Map<Material, Double> fillRateAll() {
 		Map<Material, Double> fr = new HashMap<>();
-		for (Material m : materials) {
-			fr.put(m, fillRate(m));
+		for (int i = 0; i < materials.length; i++) {
+			fr.put(materials[i], fillRate(i));
 		}
 		return fr;
 	}
 	
 	public Map<Material, Double> CSLAll() {
 		Map<Material, Double> csl = new HashMap<>();
-		for (Material m : materials) {
-			csl.put(m, CSL(m));
+		for (int i = 0; i < materials.length; i++) {
+			csl.put(materials[i], CSL(i));
 		}
 		return csl;
 	}
 	
-	public void addHoldingCosts(Material m, double costs) {
-		totalHoldingCosts += costs;
-		holdingCosts.put(m, holdingCosts.get(m) + costs);
-		String groupCombined = m.getCombinedClass();
-		String groupPrice = m.getPriceClass();
-		String groupDemand = m.getDemandClass();
-		String groupCrit = m.criticality();
-		
-		holdingCostsCombined.put(groupCombined, holdingCostsCombined.get(groupCombined) + costs);		
-		holdingCostsPrice.put(groupPrice, holdingCostsPrice.get(groupPrice) + costs);
-		holdingCostsDemand.put(groupDemand, holdingCostsDemand.get(groupDemand) + costs);		
-		holdingCostsCrit.put(groupCrit, holdingCostsCrit.get(groupCrit) + costs);
-	}
-	
-	public void addFixedCosts(Material m, double costs) {
-		totalFixedCosts += costs;
-		fixedCosts.put(m, fixedCosts.get(m) + costs);
-		String groupCombined = m.getCombinedClass();
-		String groupPrice = m.getPriceClass();
-		String groupDemand = m.getDemandClass();
-		String groupCrit = m.criticality();
-		
-		fixedCostsCombined.put(groupCombined, fixedCostsCombined.get(groupCombined) + costs);
-		fixedCostsPrice.put(groupPrice, fixedCostsPrice.get(groupPrice) + costs);
-		fixedCostsDemand.put(groupDemand, fixedCostsDemand.get(groupDemand) + costs);
-		fixedCostsCrit.put(groupCrit, fixedCostsCrit.get(groupCrit) + costs);
-	}
-	
-	public void addMarginalCosts(Material m, double costs) {
-		totalMarginalCosts += costs;
-		marginalCosts.put(m, marginalCosts.get(m) + costs);
-		String groupCombined = m.getCombinedClass();
-		String groupPrice = m.getPriceClass();
-		String groupDemand = m.getDemandClass();
-		String groupCrit = m.criticality();
+	public void addHoldingCosts(int m, double costs) {
+		holdingCosts[m] += costs;
+	}
+	
+	public void addFixedCosts(int m, double costs) {
+		fixedCosts[m] += costs;
+	}
+	
+	public void addMarginalCosts(int m, double costs) {
+		marginalCosts[m] += costs;
+	}
+	
+	/**
+	 * Saves the counters and costs of a material.
+	 * 
+	 * @param m	Material index.
+	 * @return	Outcome of the material so far.
+	 */
+	public MaterialOutcome outcome(int m) {
+		return new MaterialOutcome(countCycles[m], countStockouts[m], totalDemand[m], deniedDemand[m], 
+				backorders[m], holdingCosts[m], fixedCosts[m], marginalCosts[m]);
+	}
+	
+	/**
+	 * Replaces the counters and costs of a material by a saved outcome. Like the events, this only touches 
+	 * the entries of the material, so rollUp() needs to be called afterwards.
+	 * 
+	 * @param m			Material index.
+	 * @param outcome	Saved outcome.
+	 */
+	public void restore(int m, MaterialOutcome outcome) {
+		countCycles[m] = outcome.countCycles();
+		countStockouts[m] = outcome.countStockouts();
+		totalDemand[m] = outcome.totalDemand();
+		deniedDemand[m] = outcome.deniedDemand();
+		backorders[m] = outcome.backorders();
+		holdingCosts[m] = outcome.holdingCosts();
+		fixedCosts[m] = outcome.fixedCosts();
+		marginalCosts[m] = outcome.marginalCosts();
+	}
+	
+	/**
+	 * Computes the cost totals, overall and per group, from the per-material costs. Recording an event only 
+	 * updates the costs of its material, so this needs to be called once after the simulation and before any 
+	 * of the totals are read. The sums are taken in material index order, which makes them independent of 
+	 * the order in which the events were handled.
+	 */
+	public void rollUp() {
+		totalHoldingCosts = 0.0;
+		totalFixedCosts = 0.0;
+		totalMarginalCosts = 0.0;
+		for (int c = 0; c < groups.length; c++) {
+			Arrays.fill(holdingCostsGroup[c], 0.0);
+			Arrays.fill(fixedCostsGroup[c], 0.0);
+			Arrays.fill(marginalCostsGroup[c], 0.0);
+		}
 		
-		marginalCostsCombined.put(groupCombined, marginalCostsCombined.get(groupCombined) + costs);
-		marginalCostsPrice.put(groupPrice, marginalCostsPrice.get(groupPrice) + costs);
-		marginalCostsDemand.put(groupDemand, marginalCostsDemand.get(groupDemand) + costs);
-		marginalCostsCrit.put(groupCrit, marginalCostsCrit.get(groupCrit) + costs);
+		for (int m = 0; m < materials.length; m++) {
+			totalHoldingCosts += holdingCosts[m];
+			totalFixedCosts += fixedCosts[m];
+			totalMarginalCosts += marginalCosts[m];
+			for (int c = 0; c < groups.length; c++) {
+				int g = groups[c].groupOf(m);
+				holdingCostsGroup[c][g] += holdingCosts[m];
+				fixedCostsGroup[c][g] += fixedCosts[m];
+				marginalCostsGroup[c][g] += marginalCosts[m];
+			}
+		}
 	}
 	
 	public double getTotalCosts() {
@@ -206,52 +227,74 @@ public class Performance {
 		return totalMarginalCosts;
 	}
 	
+	/**
+	 * Returns the group index of a classification.
+	 * 
+	 * @param classification	One of GroupIndex.PRICE, DEMAND, CRITICALITY or COMBINED.
+	 * @return					Group index.
+	 */
+	public GroupIndex getGroupIndex(int classification) {
+		return groups[classification];
+	}
+	
+	public double getGroupHoldingCosts(int classification, int group) {
+		return holdingCostsGroup[classification][group];
+	}
+	
+	public double getGroupFixedCosts(int classification, int group) {
+		return fixedCostsGroup[classification][group];
+	}
+	
+	public double getGroupMarginalCosts(int classification, int group) {
+		return marginalCostsGroup[classification][group];
+	}
+	
 	public double getCombinedGroupHoldingCosts(String group) {
-		return holdingCostsCombined.get(group);
+		return holdingCostsGroup[GroupIndex.COMBINED][groups[GroupIndex.COMBINED].id(group)];
 	}
 	
 	public double getPriceGroupHoldingCosts(String group) {
-		return holdingCostsPrice.get(group);
+		return holdingCostsGroup[GroupIndex.PRICE][groups[GroupIndex.PRICE].id(group)];
 	}
 	
 	public double getDemandGroupHoldingCosts(String group) {
-		return holdingCostsDemand.get(group);
+		return holdingCostsGroup[GroupIndex.DEMAND][groups[GroupIndex.DEMAND].id(group)];
 	}
 	
 	public double getCritGroupHoldingCosts(String group) {
-		return holdingCostsCrit.get(group);
+		return holdingCostsGroup[GroupIndex.CRITICALITY][groups[GroupIndex.CRITICALITY].id(group)];
 	}
 	
 	public double getCombinedGroupFixedCosts(String group) {
-		return fixedCostsCombined.get(group);
+		return fixedCostsGroup[GroupIndex.COMBINED][groups[GroupIndex.COMBINED].id(group)];
 	}
 	
 	public double getPriceGroupFixedCosts(String group) {
-		return fixedCostsPrice.get(group);
+		return fixedCostsGroup[GroupIndex.PRICE][groups[GroupIndex.PRICE].id(group)];
 	}
 	
 	public double getDemandGroupFixedCosts(String group) {
-		return fixedCostsDemand.get(group);
+		return fixedCostsGroup[GroupIndex.DEMAND][groups[GroupIndex.DEMAND].id(group)];
 	}
 	
 	public double getCritGroupFixedCosts(String group) {
-		return fixedCostsCrit.get(group);
+		return fixedCostsGroup[GroupIndex.CRITICALITY][groups[GroupIndex.CRITICALITY].id(group)];
 	}
 	
 	public double getCombinedGroupMarginalCosts(String group) {
-		return marginalCostsCombined.get(group);
+		return marginalCostsGroup[GroupIndex.COMBINED][groups[GroupIndex.COMBINED].id(group)];
 	}
 	
 	public double getPriceGroupMarginalCosts(String group) {
-		return marginalCostsPrice.get(group);
+		return marginalCostsGroup[GroupIndex.PRICE][groups[GroupIndex.PRICE].id(group)];
 	}
 	
 	public double getDemandGroupMarginalCosts(String group) {
-		return marginalCostsDemand.get(group);
+		return marginalCostsGroup[GroupIndex.DEMAND][groups[GroupIndex.DEMAND].id(group)];
 	}
 	
 	public double getCritGroupMarginalCosts(String group) {
-		return marginalCostsCrit.get(group);
+		return marginalCostsGroup[GroupIndex.CRITICALITY][groups[GroupIndex.CRITICALITY].id(group)];
 	}
 	
 }
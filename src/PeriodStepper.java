@@ -0,0 +1,219 @@
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Alternative to the event-driven simulation in Simulator. Since demand is given per period and lead-times are
+ * rounded up to whole periods, the simulation can also advance all materials one period at a time. The policy
+ * parameters and inventory are kept in an InventoryState, and the outstanding orders of all materials in
+ * primitive arrays, so every period is a pass over arrays without a priority queue.
+ *
+ * Within a period, the order arrivals of all materials are handled first and then the consumptions, both in
+ * material order. This is exactly the order in which the event list hands out the events, so the performance
+ * measures are identical to those of the event-driven simulation, including the sums over materials.
+ *
+ */
+public class PeriodStepper implements SimulationEngine {
+
+	private Material[] materials;
+	private int from;
+	private int to;
+	private int horizon;
+	private Performance perf;
+	private InventoryState state;
+	private SimulationListener listener;
+
+	// costs
+	private double holding_costs;
+	private double fixed_costs;
+
+	// all per-material arrays are indexed from 'from'
+	private int[] leadTime;
+	private double[] price;
+	private boolean[] currentStockouts;
+	private double[] lastEventTime;
+
+	// outstanding orders, a FIFO queue per material stored in one array
+	private int[] pipelineOffset;
+	private int[] pipelineHead;
+	private int[] pipelineCount;
+	private int[] pipelineDay;
+	private int[] pipelineQuantity;
+
+	/**
+	 * Prepares a period-stepped simulation of the materials from index 'from' up to, but not including, 'to'. 
+	 * The materials themselves are not modified, the inventory is kept in state.
+	 *
+	 * @param materials		Materials, the position in the array is the material index used by perf.
+	 * @param from			First material index to simulate.
+	 * @param to			Material index after the last one to simulate.
+	 * @param horizon		Number of periods to simulate.
+	 * @param perf			Performance measures to update.
+	 * @param state			Policies and starting inventory of the materials, updated during the run.
+	 * @param holding_costs	Holding costs per period as a fraction of the price.
+	 * @param fixed_costs	Fixed costs per order.
+	 * @param listener		Listener to notify of events, may be null.
+	 */
+	public PeriodStepper(Material[] materials, int from, int to, int horizon, Performance perf,
+			InventoryState state, double holding_costs, double fixed_costs, SimulationListener listener) {
+		this.materials = materials;
+		this.from = from;
+		this.to = to;
+		this.horizon = horizon;
+		this.perf = perf;
+		this.state = state;
+		this.holding_costs = holding_costs;
+		this.fixed_costs = fixed_costs;
+		this.listener = listener;
+
+		int n = to - from;
+		leadTime = new int[n];
+		price = new double[n];
+		currentStockouts = new boolean[n];
+		lastEventTime = new double[n];
+		pipelineOffset = new int[n];
+		pipelineHead = new int[n];
+		pipelineCount = new int[n];
+
+		int pipelineSize = 0;
+		for (int i = 0; i < n; i++) {
+			Material m = materials[from + i];
+			leadTime[i] = (int)Math.ceil(m.getLeadTime());
+			price[i] = m.getPrice();
+
+			// at most one order per period, so at most lead-time orders are outstanding
+			pipelineOffset[i] = pipelineSize;
+			pipelineSize += leadTime[i] + 1;
+		}
+		pipelineDay = new int[pipelineSize];
+		pipelineQuantity = new int[pipelineSize];
+	}
+
+	@Override
+	public void run() {
+		int n = to - from;
+		for (int t = 0; t < horizon; t++) {
+			// order arrivals
+			for (int i = 0; i < n; i++) {
+				if (pipelineCount[i] > 0 && pipelineDay[pipelineOffset[i] + pipelineHead[i]] == t)
+					arrive(i, t);
+			}
+
+			// consumptions
+			for (int i = 0; i < n; i++) {
+				int demand = materials[from + i].demand(t);
+				if (demand != 0) {
+					consume(i, t, demand);
+
+					// an order without lead-time arrives before the next consumption is handled
+					if (leadTime[i] == 0 && pipelineCount[i] > 0)
+						arrive(i, t);
+				}
+			}
+		}
+	}
+
+	@Override
+	public double nextEventTime() {
+		int first = firstPending();
+		if (first < 0)
+			return Double.POSITIVE_INFINITY;
+		return pipelineDay[pipelineOffset[first] + pipelineHead[first]];
+	}
+
+	@Override
+	public void handleNextEvent() {
+		int first = firstPending();
+		if (first < 0)
+			throw new IllegalStateException("No pending events.");
+		arrive(first, pipelineDay[pipelineOffset[first] + pipelineHead[first]]);
+	}
+
+	/**
+	 * Finds the material with the earliest outstanding order, after run() only order arrivals can be pending.
+	 *
+	 * @return	Local index of the material, or -1 if no orders are outstanding.
+	 */
+	private int firstPending() {
+		int first = -1;
+		int firstDay = Integer.MAX_VALUE;
+		for (int i = 0; i < to - from; i++) {
+			if (pipelineCount[i] > 0 && pipelineDay[pipelineOffset[i] + pipelineHead[i]] < firstDay) {
+				first = i;
+				firstDay = pipelineDay[pipelineOffset[i] + pipelineHead[i]];
+			}
+		}
+		return first;
+	}
+
+	private void arrive(int i, int t) {
+		int g = from + i;
+		int amount = pipelineQuantity[pipelineOffset[i] + pipelineHead[i]];
+		pipelineHead[i] = (pipelineHead[i] + 1) % (leadTime[i] + 1);
+		pipelineCount[i]--;
+
+		state.replenishInventoryLevel(g, amount);
+		if (listener != null)
+			listener.onOrderArrival(materials[g], t, amount, state.inventoryLevel(g), state.inventoryPosition(g));
+
+		endEvent(i, t);
+	}
+
+	private void consume(int i, int t, int consumption) {
+		int g = from + i;
+		if (consumption > 0)
+			perf.addDemand(g, consumption);
+
+		// fill rate
+		int level = state.inventoryLevel(g);
+		int stockOnhand = Math.max(level, 0);
+		if (consumption > stockOnhand)
+			perf.deniedDemand(g, consumption - stockOnhand);
+
+		// CSL
+		boolean stockedOut = false;
+		if (consumption > level && level > 0 && !currentStockouts[i]) {
+			perf.stockout(g);
+			currentStockouts[i] = true;
+			stockedOut = true;
+		}
+
+		state.consume(g, consumption);
+		if (listener != null) {
+			listener.onConsumption(materials[g], t, consumption, state.inventoryLevel(g), state.inventoryPosition(g));
+			if (stockedOut)
+				listener.onStockout(materials[g], t, state.inventoryLevel(g), state.inventoryPosition(g));
+		}
+
+		// reorder
+		if (state.doReorder(g)) {
+			int q = state.reorder(g);
+			int slot = (pipelineHead[i] + pipelineCount[i]) % (leadTime[i] + 1);
+			pipelineDay[pipelineOffset[i] + slot] = t + leadTime[i];
+			pipelineQuantity[pipelineOffset[i] + slot] = q;
+			pipelineCount[i]++;
+
+			perf.startCycle(g);
+			currentStockouts[i] = false;
+			state.replenishInventoryPosition(g, q);
+			if (listener != null)
+				listener.onReorderPlaced(materials[g], t, q, state.inventoryLevel(g), state.inventoryPosition(g));
+			perf.addFixedCosts(g, fixed_costs);
+			perf.addMarginalCosts(g, price[i]*q);
+		}
+
+		endEvent(i, t);
+	}
+
+	private void endEvent(int i, double t) {
+		int g = from + i;
+
+		// holding costs since the previous event of this material
+		double hold_costs = holding_costs*Math.max(0, state.inventoryLevel(g))*(t - lastEventTime[i])*price[i];
+		perf.addHoldingCosts(g, hold_costs);
+
+		if (state.isShort(g))
+			perf.backorder(g);
+		lastEventTime[i] = t;
+	}
+
+}
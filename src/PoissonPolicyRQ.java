@@ -8,21 +8,21 @@ public class PoissonPolicyRQ implements PolicyCreator {
 
 	@Override
 	public ReorderPolicy createPolicyCSL(Material m, double target) {
-		int[] demand = m.getDemand();
-		double leadTime = m.getLeadTime();
+		DemandStatistics statistics = m.getSpec().statistics();
 		if (target == 1.0)
 			target -= 1e-4;
 		
-		double mean = mean(demand);
-		
-		double mu_prime = mean*leadTime;
+		double mean = statistics.meanNonNegative();
 		
+		// smallest reorder point of at least 1 with cdf >= target, the inverse CDF finds it up to rounding
+		PoissonDistribution poissdist = statistics.leadTimePoisson();
 		int reorderPoint = 1;
-		PoissonDistribution poissdist = new PoissonDistribution(mu_prime);
-		double currentCSL = poissdist.cumulativeProbability(reorderPoint);
-		while (currentCSL < target) {
-			reorderPoint++;
-			currentCSL = poissdist.cumulativeProbability(reorderPoint);
+		if (poissdist.cumulativeProbability(reorderPoint) < target) {
+			reorderPoint = Math.max(poissdist.inverseCumulativeProbability(target), 2);
+			while (reorderPoint > 2 && poissdist.cumulativeProbability(reorderPoint-1) >= target)
+				reorderPoint--;
+			while (poissdist.cumulativeProbability(reorderPoint) < target)
+				reorderPoint++;
 		}
 
 		// determine EOQ
@@ -37,11 +37,10 @@ public class PoissonPolicyRQ implements PolicyCreator {
 	@Override
 	public Set<Material> createPolicyCSL(Set<Material> materials, Map<String, Double> mapTargetCSL) {
 		Set<Material> poissonMaterials = new TreeSet<>();
-		PolicyCreator pc = new PoissonPolicyRQ();
 		
 		for (Material m : materials) {
 			// estimate policy
-			ReorderPolicy policy = pc.createPolicyCSL(m, mapTargetCSL.get(m.getCombinedClass()));
+			ReorderPolicy policy = createPolicyCSL(m, mapTargetCSL.get(m.getCombinedClass()));
 			Material material = new Material(m, policy);
 			poissonMaterials.add(material);
 		}
@@ -55,18 +54,6 @@ public class PoissonPolicyRQ implements PolicyCreator {
 		return null;
 	}
 	
-	private double mean(int[] demand) {
-		double sum = 0.0;
-		int count = 0;
-		for (int i = 0; i < demand.length; i++) {
-			if (demand[i] >= 0) {
-				sum += demand[i];
-				count++;
-			}
-		}
-		return sum/count;
-	}
-	
 	private double totalCosts(int Q, double d, double A, double h) {
 		return A*(d/Q) + h*(Q/2);
 	}
@@ -8,21 +8,19 @@ public class PoissonPolicyS implements PolicyCreator {
 	
 	@Override
 	public ReorderPolicy createPolicyCSL(Material m, double target) {
-		int[] demand = m.getDemand();
-		double leadTime = m.getLeadTime();
+		DemandStatistics statistics = m.getSpec().statistics();
 		if (target == 1.0)
 			target -= 1e-4;
 		
-		double mean = mean(demand);
-		
-		double mu_prime = mean*leadTime;
-		
+		// smallest base stock of at least 1 with cdf >= target, the inverse CDF finds it up to rounding
+		PoissonDistribution poissdist = statistics.leadTimePoisson();
 		int baseStock = 1;
-		PoissonDistribution poissdist = new PoissonDistribution(mu_prime);
-		double currentCSL = poissdist.cumulativeProbability(baseStock);
-		while (currentCSL < target) {
-			baseStock++;
-			currentCSL = poissdist.cumulativeProbability(baseStock);
+		if (poissdist.cumulativeProbability(baseStock) < target) {
+			baseStock = Math.max(poissdist.inverseCumulativeProbability(target), 2);
+			while (baseStock > 2 && poissdist.cumulativeProbability(baseStock-1) >= target)
+				baseStock--;
+			while (poissdist.cumulativeProbability(baseStock) < target)
+				baseStock++;
 		}
 		
 		ReorderPolicy policy = new PolicySS(baseStock, baseStock);
@@ -32,11 +30,10 @@ public class PoissonPolicyS implements PolicyCreator {
 	@Override
 	public Set<Material> createPolicyCSL(Set<Material> materials, Map<String, Double> mapTargetCSL) {
 		Set<Material> poissonMaterials = new TreeSet<>();
-		PolicyCreator pc = new PoissonPolicyS();
 		
 		for (Material m : materials) {
 			// estimate policy
-			ReorderPolicy policy = pc.createPolicyCSL(m, mapTargetCSL.get(m.getCombinedClass()));
+			ReorderPolicy policy = createPolicyCSL(m, mapTargetCSL.get(m.getCombinedClass()));
 			Material material = new Material(m, policy);
 			poissonMaterials.add(material);
 		}
@@ -49,17 +46,5 @@ public class PoissonPolicyS implements PolicyCreator {
 		// TODO Auto-generated method stub
 		return null;
 	}
-	
-	private double mean(int[] demand) {
-		double sum = 0.0;
-		int count = 0;
-		for (int i = 0; i < demand.length; i++) {
-			if (demand[i] >= 0) {
-				sum += demand[i];
-				count++;
-			}
-		}
-		return sum/count;
-	}
 
 }
@@ -1,5 +1,12 @@
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * The PolicyCreator interface is used for classes which create certain policies for a material.
@@ -9,6 +16,9 @@ import java.util.Set;
  */
 public interface PolicyCreator {
 	
+	// materials per task of the batch variant of createPoliciesCSL
+	public static final int MATERIALS_PER_TASK = 1024;
+	
 	/**
 	 * Creates a certain policy for a material given its demand, lead-time, and cycle service level.
 	 * 
@@ -21,6 +31,116 @@ public interface PolicyCreator {
 	
 	public Set<Material> createPolicyCSL(Set<Material> materials, Map<String, Double> mapTargetCSL);
 	
+	/**
+	 * Creates policies for all materials of a registry, where the target CSL of a material is the target of its 
+	 * combined class. The resulting materials keep their indices.
+	 * 
+	 * @param registry		Materials to create policies for.
+	 * @param mapTargetCSL	Target CSL per combined class.
+	 * @return				Registry of the materials with the new policies.
+	 */
+	public default MaterialRegistry createPolicyCSL(MaterialRegistry registry, Map<String, Double> mapTargetCSL) {
+		return registry.withPolicies(createPoliciesCSL(registry, mapTargetCSL));
+	}
+	
+	/**
+	 * Creates policies for all materials of a registry without copying the materials, e.g. for 
+	 * Simulator.setPolicies(). The target CSL of a material is the target of its combined class.
+	 * 
+	 * @param registry		Materials to create policies for.
+	 * @param mapTargetCSL	Target CSL per combined class.
+	 * @return				Policy per material index.
+	 */
+	public default ReorderPolicy[] createPoliciesCSL(MaterialRegistry registry, Map<String, Double> mapTargetCSL) {
+		double[] targets = registry.byCombinedClass(mapTargetCSL);
+		ReorderPolicy[] policies = new ReorderPolicy[registry.size()];
+		for (int i = 0; i < policies.length; i++)
+			policies[i] = createPolicyCSL(registry.get(i), targets[i]);
+		return policies;
+	}
+	
+	/**
+	 * Creates policies for all materials of a registry in parallel on the common ForkJoin pool, see 
+	 * createPoliciesCSL(MaterialRegistry, GroupIndex, double[], ExecutorService).
+	 * 
+	 * @param registry	Materials to create policies for.
+	 * @param groups	Group index of the materials of the registry, e.g. of the combined classes.
+	 * @param targets	Target CSL per group id.
+	 * @return			Policy parameters per material index.
+	 */
+	public default PolicyParameters createPoliciesCSL(MaterialRegistry registry, GroupIndex groups, double[] targets) {
+		return createPoliciesCSL(registry, groups, targets, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Creates policies for all materials of a registry in parallel, where the target CSL of a material is the 
+	 * target of its group id. The materials are split into ranges of MATERIALS_PER_TASK indices, and the 
+	 * parameters of the policies are written into primitive arrays, so the result does not depend on the pool.
+	 * Creators are stateless, so one instance serves all tasks.
+	 * 
+	 * @param registry	Materials to create policies for.
+	 * @param groups	Group index of the materials of the registry, e.g. of the combined classes.
+	 * @param targets	Target CSL per group id.
+	 * @param pool		Pool to create the policies on, or null to create them on the calling thread.
+	 * @return			Policy parameters per material index.
+	 */
+	public default PolicyParameters createPoliciesCSL(MaterialRegistry registry, GroupIndex groups, double[] targets,
+			ExecutorService pool) {
+		PolicyParameters parameters = new PolicyParameters(registry.size());
+		createPoliciesCSL(registry, groups, targets, parameters, pool);
+		return parameters;
+	}
+	
+	/**
+	 * Creates policies for all materials of a registry into existing policy parameters, e.g. to reuse them for 
+	 * every evaluation of a search. See createPoliciesCSL(MaterialRegistry, GroupIndex, double[], 
+	 * ExecutorService).
+	 * 
+	 * @param registry		Materials to create policies for.
+	 * @param groups		Group index of the materials of the registry, e.g. of the combined classes.
+	 * @param targets		Target CSL per group id.
+	 * @param parameters	Filled with the policy parameters per material index.
+	 * @param pool			Pool to create the policies on, or null to create them on the calling thread.
+	 */
+	public default void createPoliciesCSL(final MaterialRegistry registry, final GroupIndex groups, 
+			final double[] targets, final PolicyParameters parameters, ExecutorService pool) {
+		final int n = registry.size();
+		if (parameters.size() != n)
+			throw new IllegalArgumentException("Expected parameters of " + n + " materials, got " + parameters.size());
+		
+		// a single range is not worth a task
+		if (pool == null || n <= MATERIALS_PER_TASK) {
+			for (int m = 0; m < n; m++)
+				parameters.set(m, createPolicyCSL(registry.get(m), targets[groups.groupOf(m)]));
+			return;
+		}
+		
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int from = 0; from < n; from += MATERIALS_PER_TASK) {
+			final int first = from;
+			final int last = Math.min(from + MATERIALS_PER_TASK, n);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int m = first; m < last; m++)
+						parameters.set(m, createPolicyCSL(registry.get(m), targets[groups.groupOf(m)]));
+					return null;
+				}
+			});
+		}
+		try {
+			for (Future<Void> f : pool.invokeAll(tasks))
+				f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Policy creation interrupted.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+	
 	/**
 	 * Creates a certain policy for a material given its demand, lead-time, and cycle service level.
 	 * 
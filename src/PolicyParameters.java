@@ -0,0 +1,155 @@
+import java.util.Arrays;
+
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Parameters of the reorder policies of a batch of materials in primitive arrays indexed by material index, as
+ * created by PolicyCreator.createPoliciesCSL() for a target per group. Only (s,S) and (R,Q) policies are
+ * supported, like in InventoryState, and an (R,Q) policy always starts at its maximum stock, as PolicyRQ does.
+ * Simulator.setPolicies() takes the parameters as they are; the policy of a material is only created as an
+ * object when it is asked for, and two batches with the same parameters compare equal without creating any.
+ *
+ */
+public class PolicyParameters {
+
+	private int[] reorderPoint;
+	private int[] maxStock;
+	private int[] initialStock;
+	private boolean[] orderUpTo;
+
+	/**
+	 * Creates the parameters of a number of materials, the policies are set with set().
+	 *
+	 * @param size	Number of materials.
+	 */
+	public PolicyParameters(int size) {
+		reorderPoint = new int[size];
+		maxStock = new int[size];
+		initialStock = new int[size];
+		orderUpTo = new boolean[size];
+	}
+
+	/**
+	 * Stores the parameters of the policy of a material. Materials of different indices may be set from
+	 * different threads.
+	 *
+	 * @param m			Material index.
+	 * @param policy	Policy of the material.
+	 */
+	public void set(int m, ReorderPolicy policy) {
+		boolean upTo;
+		if (policy instanceof PolicyRQ)
+			upTo = false;
+		else if (policy instanceof PolicySS)
+			upTo = true;
+		else
+			throw new IllegalArgumentException("Unsupported reorder policy: " + policy.getClass().getName());
+		if (policy.inventoryLevel() != policy.inventoryPostion())
+			throw new IllegalArgumentException("Inventory level and position of a new policy differ.");
+		if (!upTo && policy.inventoryLevel() != policy.maxStock())
+			throw new IllegalArgumentException("An (R,Q) policy must start at its maximum stock.");
+		orderUpTo[m] = upTo;
+		reorderPoint[m] = policy.reorderPoint();
+		maxStock[m] = policy.maxStock();
+		initialStock[m] = policy.inventoryLevel();
+	}
+
+	public int size() {
+		return reorderPoint.length;
+	}
+
+	public int reorderPoint(int m) {
+		return reorderPoint[m];
+	}
+
+	public int maxStock(int m) {
+		return maxStock[m];
+	}
+
+	/**
+	 * Returns the order quantity of an (R,Q) policy, or the distance from the reorder point to the maximum stock
+	 * of an (s,S) policy.
+	 *
+	 * @param m	Material index.
+	 * @return	Order quantity.
+	 */
+	public int quantity(int m) {
+		return maxStock[m] - reorderPoint[m];
+	}
+
+	/**
+	 * Checks if a material orders up to the maximum stock, as in (s,S), or a fixed quantity, as in (R,Q).
+	 *
+	 * @param m	Material index.
+	 * @return	True for an (s,S) policy.
+	 */
+	public boolean isOrderUpTo(int m) {
+		return orderUpTo[m];
+	}
+
+	public int initialStock(int m) {
+		return initialStock[m];
+	}
+
+	/**
+	 * Copies the parameters of a material of other policy parameters, e.g. to assemble the policies of a
+	 * registry from those of its parts.
+	 *
+	 * @param m		Material index.
+	 * @param from	Parameters to copy from.
+	 * @param k		Material index in the parameters to copy from.
+	 */
+	public void set(int m, PolicyParameters from, int k) {
+		reorderPoint[m] = from.reorderPoint[k];
+		maxStock[m] = from.maxStock[k];
+		initialStock[m] = from.initialStock[k];
+		orderUpTo[m] = from.orderUpTo[k];
+	}
+
+	/**
+	 * Creates the policy of a material with its starting inventory.
+	 *
+	 * @param m	Material index.
+	 * @return	New policy.
+	 */
+	public ReorderPolicy policy(int m) {
+		if (!orderUpTo[m])
+			return new PolicyRQ(reorderPoint[m], maxStock[m] - reorderPoint[m]);
+		if (initialStock[m] == maxStock[m])
+			return new PolicySS(reorderPoint[m], maxStock[m]);
+		return new PolicySS(initialStock[m], reorderPoint[m], maxStock[m]);
+	}
+
+	/**
+	 * Creates the policies of all materials, e.g. for Simulator.setPolicies().
+	 *
+	 * @return	New policy per material index.
+	 */
+	public ReorderPolicy[] toPolicies() {
+		ReorderPolicy[] policies = new ReorderPolicy[reorderPoint.length];
+		for (int m = 0; m < policies.length; m++)
+			policies[m] = policy(m);
+		return policies;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof PolicyParameters))
+			return false;
+		PolicyParameters that = (PolicyParameters) o;
+		return Arrays.equals(reorderPoint, that.reorderPoint) && Arrays.equals(maxStock, that.maxStock)
+				&& Arrays.equals(initialStock, that.initialStock) && Arrays.equals(orderUpTo, that.orderUpTo);
+	}
+
+	@Override
+	public int hashCode() {
+		int h = Arrays.hashCode(reorderPoint);
+		h = 31*h + Arrays.hashCode(maxStock);
+		h = 31*h + Arrays.hashCode(initialStock);
+		return 31*h + Arrays.hashCode(orderUpTo);
+	}
+
+}
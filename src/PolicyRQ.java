@@ -23,5 +23,14 @@ public class PolicyRQ extends ReorderPolicy {
 	public int reorder() {
 		return quantity;
 	}
+	
+	/**
+	 * Returns the fixed order quantity of this policy.
+	 * 
+	 * @return	Order quantity.
+	 */
+	public int quantity() {
+		return quantity;
+	}
 
 }
\ No newline at end of file
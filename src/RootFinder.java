@@ -0,0 +1,130 @@
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Strategy to find the root of an increasing function on a bracket, where every evaluation is expensive, e.g. 
+ * a simulation. The search is driven by the caller: it asks for the next point, evaluates the function there 
+ * and reports the value, until it is close enough or the bracket is small enough. This way the caller keeps 
+ * control over the stopping criteria and can evaluate several searches side by side.
+ *
+ */
+public interface RootFinder {
+
+	/**
+	 * Starts a search on a bracket. The function values at the ends of the bracket are not known yet, they 
+	 * are assumed to be negative at lower and positive at upper.
+	 *
+	 * @param lower	Lower end of the bracket.
+	 * @param upper	Upper end of the bracket.
+	 * @return		New search.
+	 */
+	public Search start(double lower, double upper);
+
+	/**
+	 * State of a single search: the bracket with the function values at its ends, NaN while unknown.
+	 */
+	public abstract class Search {
+
+		protected double lower;
+		protected double upper;
+		protected double fLower = Double.NaN;
+		protected double fUpper = Double.NaN;
+		// end of the bracket replaced by the last evaluation, NaN while unknown
+		protected double replaced = Double.NaN;
+		protected double fReplaced = Double.NaN;
+		private int evaluations = 0;
+
+		protected Search(double lower, double upper) {
+			this.lower = lower;
+			this.upper = upper;
+		}
+
+		/**
+		 * Returns the next point to evaluate, strictly inside the bracket.
+		 *
+		 * @return	Next point.
+		 */
+		public abstract double next();
+
+		/**
+		 * Reports the function value at a point, which replaces the end of the bracket on the same side of 
+		 * the root. A value of exactly 0 replaces the upper end.
+		 *
+		 * @param x		Point.
+		 * @param fx	Function value at x.
+		 */
+		public void update(double x, double fx) {
+			evaluations++;
+			replaced = fx < 0 ? lower : upper;
+			fReplaced = fx < 0 ? fLower : fUpper;
+			if (fx < 0) {
+				lower = x;
+				fLower = fx;
+			} else {
+				upper = x;
+				fUpper = fx;
+			}
+		}
+
+		public double lower() {
+			return lower;
+		}
+
+		public double upper() {
+			return upper;
+		}
+
+		public double width() {
+			return upper - lower;
+		}
+
+		/**
+		 * Returns the number of function values reported so far.
+		 *
+		 * @return	Number of evaluations.
+		 */
+		public int evaluations() {
+			return evaluations;
+		}
+
+		/**
+		 * Checks if the function values at both ends of the bracket are known, which is needed to interpolate.
+		 *
+		 * @return	True if both values are known.
+		 */
+		protected boolean bracketed() {
+			return !Double.isNaN(fLower) && !Double.isNaN(fUpper);
+		}
+
+		protected double midpoint() {
+			return (lower + upper)/2;
+		}
+
+		/**
+		 * Extrapolates through the last two points while only one end of the bracket has a known function 
+		 * value, both points are then on the same side of the root.
+		 *
+		 * @return	Secant point, or NaN if there are no two points or the secant is not inside the bracket.
+		 */
+		protected double extrapolate() {
+			double x = Double.NaN;
+			if (!Double.isNaN(fLower) && !Double.isNaN(fReplaced) && fLower != fReplaced)
+				x = lower - fLower*(lower - replaced)/(fLower - fReplaced);
+			else if (!Double.isNaN(fUpper) && !Double.isNaN(fReplaced) && fUpper != fReplaced)
+				x = upper - fUpper*(upper - replaced)/(fUpper - fReplaced);
+			return inside(x) ? x : Double.NaN;
+		}
+
+		/**
+		 * Checks if an interpolated point can be used, i.e. it lies strictly inside the bracket.
+		 *
+		 * @param x	Interpolated point.
+		 * @return	True if x can be evaluated.
+		 */
+		protected boolean inside(double x) {
+			return x > lower && x < upper;
+		}
+
+	}
+
+}
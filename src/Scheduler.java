@@ -2,60 +2,99 @@
  * 
  * @author Nemanja Milovanovic
  * 
- * A class that keeps track of time and which event needs to be scheduled when.
+ * A class that keeps track of time and which event needs to be scheduled when. Events refer to materials by
+ * their index in the simulated material array, so scheduling and extracting events does not allocate.
  *
  */
 
 public class Scheduler {
 	
 	// class variables
-	private EventList evl;
+	private EventQueue evl;
 	private double time;
 	
 	/**
 	 * Constructs the scheduler.
 	 */
 	public Scheduler() {
-		time = 0;
-		evl = new EventList();
+		this(new EventList());
 	}
 	
 	/**
-	 * Extracts the upcoming event from the event list and updates the time.
+	 * Constructs the scheduler on top of a specific event queue implementation.
 	 * 
-	 * @return Upcoming event.
+	 * @param evl	Event queue holding the scheduled events.
+	 */
+	public Scheduler(EventQueue evl) {
+		time = 0;
+		this.evl = evl;
+	}
+
+	/**
+	 * Extracts the upcoming event from the event list and updates the time. The details of the event can be
+	 * retrieved with eventMaterial() and eventQuantity().
+	 *
+	 * @return Kind of the upcoming event, either EventQueue.CONSUMPTION or EventQueue.ORDER_ARRIVAL.
+	 */
+	public byte nextEvent() {
+		byte kind = evl.nextEvent();
+		time = evl.polledTime();
+		return kind;
+	}
+
+	/**
+	 * Gives the material index of the event last extracted by nextEvent().
+	 *
+	 * @return	Material index.
+	 */
+	public int eventMaterial() {
+		return evl.polledMaterial();
+	}
+
+	/**
+	 * Gives the demand or order quantity of the event last extracted by nextEvent().
+	 *
+	 * @return	Quantity of the event.
 	 */
-	public Event nextEvent() {
-		Event e = evl.nextEvent();
-		time = e.executionTime();
-		return e;
+	public int eventQuantity() {
+		return evl.polledQuantity();
+	}
+
+	/**
+	 * Creates an Event object describing the event last extracted by nextEvent(). This allocates, so it is
+	 * meant for debugging only.
+	 *
+	 * @param materials	Material array the event indices refer to.
+	 * @return			Event object of the last extracted event.
+	 */
+	public Event currentEvent(Material[] materials) {
+		Material m = materials[evl.polledMaterial()];
+		if (evl.polledKind() == EventQueue.CONSUMPTION)
+			return new ConsumptionEvent(m, evl.polledQuantity(), evl.polledTime());
+		return new ReorderEvent(m, evl.polledQuantity(), evl.polledTime());
 	}
 	
 	/**
 	 * Schedules a consumption event with a prespecified execution time for a certain material.
 	 * 
-	 * @param m_id				Material ID which is to be consumed.
+	 * @param material			Index of the material which is to be consumed.
+	 * @param demand			Demand of the consumption.
 	 * @param execution_time	Time at which the consumption will take place.
-	 * @return					Returns the scheduled consumption event.
 	 */
-	public ConsumptionEvent addConsumptionEvent(Material m, int demand, double execution_time) {
-		ConsumptionEvent e = new ConsumptionEvent(m, demand, execution_time);
-		evl.addEvent(e);
-		return e;
+	public void addConsumptionEvent(int material, int demand, double execution_time) {
+		evl.addEvent(execution_time, EventQueue.CONSUMPTION, material, demand);
 	}
 	
 	/**
 	 * Schedules a reorder event to take place at a prespecified time for a certain material. The
 	 * processing time is assumed to be negligible.
 	 * 
-	 * @param m_id				Material to be replenished.
+	 * @param material			Index of the material to be replenished.
+	 * @param quantity			Order quantity.
 	 * @param execution_time	Time at which the reorder will be processed.
-	 * @return					Returns the scheduled reorder event.
 	 */
-	public ReorderEvent addReorderEvent(Material m, int quantity, double execution_time) {
-		ReorderEvent e = new ReorderEvent(m, quantity, execution_time);
-		evl.addEvent(e);
-		return e;
+	public void addReorderEvent(int material, int quantity, double execution_time) {
+		evl.addEvent(execution_time, EventQueue.ORDER_ARRIVAL, material, quantity);
 	}
 	
 	/**
@@ -67,6 +106,15 @@ public class Scheduler {
 		return evl.hasEvent();
 	}
 	
+	/**
+	 * Gives the execution time of the upcoming event without extracting it.
+	 *
+	 * @return	Execution time of the upcoming event.
+	 */
+	public double peekTime() {
+		return evl.peekTime();
+	}
+
 	/**
 	 * Gives the current time in the system.
 	 * 
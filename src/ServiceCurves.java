@@ -0,0 +1,290 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Service response curves of the materials of a registry under the policies of a PolicyCreator. For a fixed
+ * demand history and lead-time, the stockouts, cycles and denied demand of a material only depend on the
+ * integer parameters of its policy, and the policy creators only move the reorder point with the target:
+ * (R,Q) policies keep their order quantity, (s,S) policies the distance between s and S. So every material
+ * is simulated once for each reorder point between those of target 0 and target 1, and any map of targets
+ * can then be evaluated by looking up the counters and aggregating them, without simulating.
+ *
+ * A curve stops at the first reorder point without stockouts and denied demand, all higher reorder points
+ * have the same service levels. The counters of all materials are stored in three flat arrays. Policies
+ * outside the curves, e.g. from a creator which changes the order quantity with the target, are simulated
+ * when they are evaluated.
+ *
+ * Building the curves can be stopped between materials, e.g. at a time limit. The materials that were not swept
+ * yet have no curve, so they are simulated whenever they are evaluated.
+ *
+ */
+public class ServiceCurves {
+
+	private Simulator sim;
+	private MaterialRegistry registry;
+	private PolicyCreator pc;
+	private GroupIndex combined;
+
+	// per material
+	private boolean[] fixedQuantity;
+	private int[] orderSize;
+	private int[] firstReorderPoint;
+	private int[] length;
+	private boolean[] complete;
+	private int[] offset;
+	private int[] totalDemand;
+	private int[] weight;
+	private int[] groupWeight;
+
+	// per material and reorder point, material m starts at offset[m]
+	private int[] cycles;
+	private int[] stockouts;
+	private int[] deniedDemand;
+
+	private int simulations = 0;
+	private boolean stopped = false;
+
+	/**
+	 * Simulates the curves of all materials of a registry.
+	 *
+	 * @param registry	Materials with any policy.
+	 * @param pc		Creator of the policies to evaluate.
+	 */
+	public ServiceCurves(MaterialRegistry registry, PolicyCreator pc) {
+		this(registry, pc, null);
+	}
+
+	/**
+	 * Simulates the curves of the materials of a registry until a stop condition holds. The condition is checked
+	 * before every material.
+	 *
+	 * @param registry	Materials with any policy.
+	 * @param pc		Creator of the policies to evaluate.
+	 * @param stop		Condition to stop building the curves, or null to build all of them.
+	 */
+	public ServiceCurves(MaterialRegistry registry, PolicyCreator pc, BooleanSupplier stop) {
+		this.registry = registry;
+		this.pc = pc;
+		this.sim = new Simulator(registry);
+		Material[] materials = registry.toArray();
+		combined = new GroupIndex(materials, GroupIndex.COMBINED);
+
+		int n = registry.size();
+		fixedQuantity = new boolean[n];
+		orderSize = new int[n];
+		firstReorderPoint = new int[n];
+		length = new int[n];
+		complete = new boolean[n];
+		offset = new int[n];
+		totalDemand = new int[n];
+		weight = new int[n];
+		groupWeight = new int[combined.size()];
+		cycles = new int[64];
+		stockouts = new int[64];
+		deniedDemand = new int[64];
+
+		for (int m = 0; m < n; m++) {
+			weight[m] = materials[m].totalPositiveDemand();
+			groupWeight[combined.groupOf(m)] += weight[m];
+		}
+
+		int size = 0;
+		for (int m = 0; m < n; m++) {
+			offset[m] = size;
+			if (!stopped && stop != null && stop.getAsBoolean())
+				stopped = true;
+			// materials without a curve have length 0
+			if (!stopped)
+				size += sweep(m, size);
+		}
+		cycles = Arrays.copyOf(cycles, size);
+		stockouts = Arrays.copyOf(stockouts, size);
+		deniedDemand = Arrays.copyOf(deniedDemand, size);
+	}
+
+	/**
+	 * Simulates the reorder points of a material from target 0 up to target 1, or up to the first reorder point
+	 * without stockouts and denied demand.
+	 *
+	 * @param m		Material index.
+	 * @param start	Position of the first counters of the material.
+	 * @return		Number of reorder points simulated.
+	 */
+	private int sweep(int m, int start) {
+		Material material = registry.get(m);
+		ReorderPolicy low = pc.createPolicyCSL(material, 0.0);
+		ReorderPolicy high = pc.createPolicyCSL(material, 1.0);
+		if (low instanceof PolicyRQ && high instanceof PolicyRQ
+				&& ((PolicyRQ) low).quantity() == ((PolicyRQ) high).quantity()) {
+			fixedQuantity[m] = true;
+			orderSize[m] = ((PolicyRQ) low).quantity();
+		} else if (low instanceof PolicySS && high instanceof PolicySS
+				&& low.maxStock() - low.reorderPoint() == high.maxStock() - high.reorderPoint()) {
+			fixedQuantity[m] = false;
+			orderSize[m] = low.maxStock() - low.reorderPoint();
+		} else {
+			// no curve, every policy is simulated when it is evaluated
+			length[m] = 0;
+			return 0;
+		}
+		firstReorderPoint[m] = low.reorderPoint();
+
+		int k = 0;
+		for (int s = low.reorderPoint(); s <= high.reorderPoint(); s++, k++) {
+			MaterialOutcome outcome = sim.simulate(m, policy(m, s));
+			simulations++;
+			if (start + k == cycles.length) {
+				cycles = Arrays.copyOf(cycles, 2*cycles.length);
+				stockouts = Arrays.copyOf(stockouts, 2*stockouts.length);
+				deniedDemand = Arrays.copyOf(deniedDemand, 2*deniedDemand.length);
+			}
+			cycles[start + k] = outcome.countCycles();
+			stockouts[start + k] = outcome.countStockouts();
+			deniedDemand[start + k] = outcome.deniedDemand();
+			totalDemand[m] = outcome.totalDemand();
+
+			// higher reorder points have the same service levels
+			if (outcome.countStockouts() == 0 && outcome.deniedDemand() == 0) {
+				complete[m] = true;
+				k++;
+				break;
+			}
+		}
+		length[m] = k;
+		return k;
+	}
+
+	private ReorderPolicy policy(int m, int reorderPoint) {
+		if (fixedQuantity[m])
+			return new PolicyRQ(reorderPoint, orderSize[m]);
+		return new PolicySS(reorderPoint, reorderPoint + orderSize[m]);
+	}
+
+	/**
+	 * Finds the position of the counters of a material with a policy.
+	 *
+	 * @param m			Material index.
+	 * @param policies	Policy parameters per material index.
+	 * @return			Position in the counter arrays, -1 if the policy is not on the curve, or -2 if it lies
+	 * 					beyond the reorder point without stockouts and denied demand.
+	 */
+	private int position(int m, PolicyParameters policies) {
+		if (length[m] == 0)
+			return -1;
+		if (policies.initialStock(m) != policies.maxStock(m))
+			return -1;
+		if (policies.isOrderUpTo(m) == fixedQuantity[m] || policies.quantity(m) != orderSize[m])
+			return -1;
+
+		int k = policies.reorderPoint(m) - firstReorderPoint[m];
+		if (k < 0)
+			return -1;
+		if (k < length[m])
+			return offset[m] + k;
+		return complete[m] ? -2 : -1;
+	}
+
+	/**
+	 * Evaluates the service levels of the combined classes for a map of target CSLs. The service levels are
+	 * aggregated exactly like Simulator does, so they are equal to those of a simulation of the policies.
+	 *
+	 * @param targetCSL	Target CSL per combined class.
+	 * @param CSL		Filled with the realized CSL per combined group id, see groups().
+	 * @param fillRate	Filled with the realized fill rate per combined group id.
+	 */
+	public void evaluate(Map<String, Double> targetCSL, double[] CSL, double[] fillRate) {
+		double[] targets = new double[combined.size()];
+		for (int g = 0; g < targets.length; g++)
+			targets[g] = targetCSL.get(combined.name(g));
+		evaluate(targets, CSL, fillRate, new PolicyParameters(registry.size()));
+	}
+	
+	/**
+	 * Evaluates the service levels of the combined classes for a target CSL per combined group id, and keeps the 
+	 * policies that were evaluated, so they need not be created again to simulate them. The policies are created 
+	 * with the batch variant of PolicyCreator.createPoliciesCSL() on the calling thread.
+	 *
+	 * @param targets	Target CSL per combined group id, see groups().
+	 * @param CSL		Filled with the realized CSL per combined group id.
+	 * @param fillRate	Filled with the realized fill rate per combined group id.
+	 * @param policies	Filled with the policy parameters per material index.
+	 */
+	public void evaluate(double[] targets, double[] CSL, double[] fillRate, PolicyParameters policies) {
+		Arrays.fill(CSL, 0.0);
+		Arrays.fill(fillRate, 0.0);
+		pc.createPoliciesCSL(registry, combined, targets, policies, null);
+		for (int m = 0; m < registry.size(); m++) {
+			int p = position(m, policies);
+			double csl;
+			double fr;
+			if (p >= 0) {
+				csl = 1 - (double)stockouts[p]/cycles[p];
+				fr = 1 - (double)deniedDemand[p]/totalDemand[m];
+			} else if (p == -2) {
+				// no stockouts and no denied demand beyond the curve, the divisions are those of Performance on
+				// the counters of the last point, so a material without cycles or demand keeps its NaN on purpose
+				int last = offset[m] + length[m] - 1;
+				csl = 1 - 0.0/cycles[last];
+				fr = 1 - 0.0/totalDemand[m];
+			} else {
+				MaterialOutcome outcome = sim.simulate(m, policies.policy(m));
+				synchronized (this) {
+					simulations++;
+				}
+				csl = 1 - (double)outcome.countStockouts()/outcome.countCycles();
+				fr = 1 - (double)outcome.deniedDemand()/outcome.totalDemand();
+			}
+
+			int g = combined.groupOf(m);
+			CSL[g] += csl*weight[m];
+			fillRate[g] += fr*weight[m];
+		}
+
+		for (int g = 0; g < combined.size(); g++) {
+			CSL[g] /= groupWeight[g];
+			fillRate[g] /= groupWeight[g];
+		}
+	}
+
+	/**
+	 * Returns the combined classes of the materials, the group ids of evaluate() refer to it.
+	 *
+	 * @return	Group index of the combined classes.
+	 */
+	public GroupIndex groups() {
+		return combined;
+	}
+
+	/**
+	 * Checks if building the curves was stopped before all materials were swept.
+	 *
+	 * @return	True if some materials have no curve because of the stop condition.
+	 */
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	/**
+	 * Returns the number of reorder points stored over all curves.
+	 *
+	 * @return	Size of the curves.
+	 */
+	public int size() {
+		return cycles.length;
+	}
+
+	/**
+	 * Returns the number of single-material simulations so far, for building the curves and for policies
+	 * outside the curves.
+	 *
+	 * @return	Number of simulations.
+	 */
+	public synchronized int simulations() {
+		return simulations;
+	}
+
+}
@@ -0,0 +1,31 @@
+/**
+ * The SimulationEngine interface is used for classes which simulate a range of materials over the horizon and 
+ * record the outcome in a Performance instance.
+ * 
+ * The historical simulation handles every event before the horizon, and then exactly one more event: the 
+ * first order arrival past the horizon. When the materials are split over several engines, only the engine 
+ * holding the first of these events should handle it, which is why run() stops at the horizon.
+ * 
+ * @author Nemanja Milovanovic
+ *
+ */
+public interface SimulationEngine {
+	
+	/**
+	 * Handles all events which take place before the horizon.
+	 */
+	public void run();
+	
+	/**
+	 * Gives the execution time of the next event which has not been handled yet.
+	 * 
+	 * @return	Execution time of the next event, or positive infinity if there is none.
+	 */
+	public double nextEventTime();
+	
+	/**
+	 * Handles the next event which has not been handled yet.
+	 */
+	public void handleNextEvent();
+	
+}
@@ -0,0 +1,57 @@
+/**
+ * The SimulationListener interface is used for classes which want to follow a simulation event by event, for
+ * instance to trace the inventory level and position of a material over time. A Simulator without a listener
+ * does not do any of this bookkeeping.
+ * 
+ * All callbacks receive the inventory level and inventory position of the material right after the event has 
+ * been handled.
+ * 
+ * @author Nemanja Milovanovic
+ *
+ */
+public interface SimulationListener {
+	
+	/**
+	 * Called when demand for a material is consumed.
+	 * 
+	 * @param m						Consumed material.
+	 * @param time					Time of the consumption.
+	 * @param demand				Demand of the consumption.
+	 * @param inventoryLevel		Inventory level after the consumption.
+	 * @param inventoryPosition		Inventory position after the consumption.
+	 */
+	public void onConsumption(Material m, double time, int demand, int inventoryLevel, int inventoryPosition);
+	
+	/**
+	 * Called when a consumption causes a material to stock out. This happens at most once per order cycle.
+	 * 
+	 * @param m						Material that stocked out.
+	 * @param time					Time of the stockout.
+	 * @param inventoryLevel		Inventory level after the consumption.
+	 * @param inventoryPosition		Inventory position after the consumption.
+	 */
+	public void onStockout(Material m, double time, int inventoryLevel, int inventoryPosition);
+	
+	/**
+	 * Called when a reorder is placed for a material.
+	 * 
+	 * @param m						Reordered material.
+	 * @param time					Time the order is placed.
+	 * @param quantity				Order quantity.
+	 * @param inventoryLevel		Inventory level after placing the order.
+	 * @param inventoryPosition		Inventory position after placing the order.
+	 */
+	public void onReorderPlaced(Material m, double time, int quantity, int inventoryLevel, int inventoryPosition);
+	
+	/**
+	 * Called when an order arrives and replenishes the inventory of a material.
+	 * 
+	 * @param m						Replenished material.
+	 * @param time					Time of arrival.
+	 * @param quantity				Order quantity.
+	 * @param inventoryLevel		Inventory level after the arrival.
+	 * @param inventoryPosition		Inventory position after the arrival.
+	 */
+	public void onOrderArrival(Material m, double time, int quantity, int inventoryLevel, int inventoryPosition);
+	
+}
@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Outcome of one simulation run: service levels per material, service levels and costs per group for every
+ * classification, and the cost totals, all in primitive arrays. The result is a snapshot, so it stays valid
+ * when the simulator is run again.
+ *
+ * Reports are only rendered when asked for. The text summary is built on the first call to summary() or
+ * toString() and kept, so callers that only read a few numbers do not pay for it.
+ *
+ */
+public class SimulationResult {
+
+	// criticality classes of the backorder costs
+	public static final int CRIT_H = 0;
+	public static final int CRIT_M = 1;
+	public static final int CRIT_L = 2;
+	public static final int CRIT_Z = 3;
+
+	// order and titles of the group sections in the summary
+	private static final int[] SECTIONS = { GroupIndex.DEMAND, GroupIndex.PRICE, GroupIndex.CRITICALITY, GroupIndex.COMBINED };
+	private static final String[] SECTION_TITLES = { "Demand\t\tCSL\t\t\tFR\t\t\tHC\t\t\tFC\t\tMC", "Price", "Criticality", "Combined" };
+
+	private Material[] materials;
+	private GroupIndex[] groups;
+
+	// per material
+	private double[] fillRate;
+	private double[] CSL;
+
+	// per classification and group id
+	private double[][] fillRateGroup;
+	private double[][] CSLGroup;
+	private double[][] holdingCostsGroup;
+	private double[][] fixedCostsGroup;
+	private double[][] marginalCostsGroup;
+
+	// totals
+	private double totalHoldingCosts;
+	private double totalFixedCosts;
+	private double totalMarginalCosts;
+	private double[] backorderCosts;
+
+	private String summary;
+
+	/**
+	 * Takes a snapshot of a finished run.
+	 *
+	 * @param materials			Simulated materials by material index.
+	 * @param perf				Performance of the run, rolled up.
+	 * @param fillRateGroup		Fill rate per classification and group id.
+	 * @param CSLGroup			CSL per classification and group id.
+	 * @param backorderCosts	Backorder costs per criticality class, indexed by CRIT_H to CRIT_Z.
+	 */
+	public SimulationResult(Material[] materials, Performance perf, double[][] fillRateGroup, double[][] CSLGroup,
+			double[] backorderCosts) {
+		this.materials = materials;
+		this.fillRateGroup = fillRateGroup;
+		this.CSLGroup = CSLGroup;
+		this.backorderCosts = backorderCosts;
+
+		int n = materials.length;
+		fillRate = new double[n];
+		CSL = new double[n];
+		for (int i = 0; i < n; i++) {
+			fillRate[i] = perf.fillRate(i);
+			CSL[i] = perf.CSL(i);
+		}
+
+		groups = new GroupIndex[4];
+		holdingCostsGroup = new double[groups.length][];
+		fixedCostsGroup = new double[groups.length][];
+		marginalCostsGroup = new double[groups.length][];
+		for (int c = 0; c < groups.length; c++) {
+			groups[c] = perf.getGroupIndex(c);
+			int size = groups[c].size();
+			holdingCostsGroup[c] = new double[size];
+			fixedCostsGroup[c] = new double[size];
+			marginalCostsGroup[c] = new double[size];
+			for (int g = 0; g < size; g++) {
+				holdingCostsGroup[c][g] = perf.getGroupHoldingCosts(c, g);
+				fixedCostsGroup[c][g] = perf.getGroupFixedCosts(c, g);
+				marginalCostsGroup[c][g] = perf.getGroupMarginalCosts(c, g);
+			}
+		}
+
+		totalHoldingCosts = perf.getTotalHoldingCosts();
+		totalFixedCosts = perf.getTotalFixedCosts();
+		totalMarginalCosts = perf.getTotalMarginalCosts();
+	}
+
+	public int size() {
+		return materials.length;
+	}
+
+	public Material material(int m) {
+		return materials[m];
+	}
+
+	public double fillRate(int m) {
+		return fillRate[m];
+	}
+
+	public double CSL(int m) {
+		return CSL[m];
+	}
+
+	/**
+	 * Returns the group index of a classification, group ids of the other methods refer to it.
+	 *
+	 * @param classification	One of GroupIndex.PRICE, DEMAND, CRITICALITY or COMBINED.
+	 * @return					Group index.
+	 */
+	public GroupIndex groups(int classification) {
+		return groups[classification];
+	}
+
+	public double fillRate(int classification, int group) {
+		return fillRateGroup[classification][group];
+	}
+
+	public double CSL(int classification, int group) {
+		return CSLGroup[classification][group];
+	}
+
+	public double holdingCosts(int classification, int group) {
+		return holdingCostsGroup[classification][group];
+	}
+
+	public double fixedCosts(int classification, int group) {
+		return fixedCostsGroup[classification][group];
+	}
+
+	public double marginalCosts(int classification, int group) {
+		return marginalCostsGroup[classification][group];
+	}
+
+	public double getTotalHoldingCosts() {
+		return totalHoldingCosts;
+	}
+
+	public double getTotalFixedCosts() {
+		return totalFixedCosts;
+	}
+
+	public double getTotalMarginalCosts() {
+		return totalMarginalCosts;
+	}
+
+	/**
+	 * Returns the total costs, which are the fixed and holding costs.
+	 *
+	 * @return	Total costs.
+	 */
+	public double getTotalCosts() {
+		return totalFixedCosts + totalHoldingCosts;
+	}
+
+	/**
+	 * Returns the backorder costs of a criticality class.
+	 *
+	 * @param crit	One of CRIT_H, CRIT_M, CRIT_L or CRIT_Z.
+	 * @return		Backorder costs.
+	 */
+	public double getBackorderCosts(int crit) {
+		return backorderCosts[crit];
+	}
+
+	/**
+	 * Returns the CSL per combined class as a map, for code working with group names.
+	 *
+	 * @return	New map from combined class to CSL.
+	 */
+	public Map<String, Double> getRealizedCSLCombined() {
+		return toMap(CSLGroup[GroupIndex.COMBINED]);
+	}
+
+	/**
+	 * Returns the fill rate per combined class as a map, for code working with group names.
+	 *
+	 * @return	New map from combined class to fill rate.
+	 */
+	public Map<String, Double> getRealizedFRCombined() {
+		return toMap(fillRateGroup[GroupIndex.COMBINED]);
+	}
+
+	private Map<String, Double> toMap(double[] values) {
+		Map<String, Double> map = new TreeMap<>();
+		GroupIndex combined = groups[GroupIndex.COMBINED];
+		for (int g = 0; g < combined.size(); g++)
+			map.put(combined.name(g), values[g]);
+		return map;
+	}
+
+	/**
+	 * Returns the text summary of the run, rendered on the first call.
+	 *
+	 * @return	Summary.
+	 */
+	public String summary() {
+		if (summary == null) {
+			StringBuilder sb = new StringBuilder(4096);
+			try {
+				render(sb);
+			} catch (IOException e) {
+				// appending to a StringBuilder does not fail
+				throw new IllegalStateException(e);
+			}
+			summary = sb.toString();
+		}
+		return summary;
+	}
+
+	/**
+	 * Writes the text summary of the run.
+	 *
+	 * @param out	Destination of the summary.
+	 * @throws IOException	If writing fails.
+	 */
+	public void writeSummary(Writer out) throws IOException {
+		if (summary != null)
+			out.write(summary);
+		else
+			render(out);
+	}
+
+	private void render(Appendable out) throws IOException {
+		out.append("SIMULATION SUMMARY\n");
+		out.append("==================\n");
+
+		// service levels of all materials in one pass
+		Stats fr = Stats.of(fillRate);
+		Stats csl = Stats.of(CSL);
+		writeStats(out, "fill rate", fr);
+		writeStats(out, "cycle service level", csl);
+
+		// OVERVIEW OF COSTS
+		out.append("cost overview\n");
+		out.append("-------------\n");
+		out.append("total fixed costs:\t\t").append(String.valueOf(totalFixedCosts)).append('\n');
+		out.append("total holding costs:\t\t").append(String.valueOf(totalHoldingCosts)).append('\n');
+		out.append("total marginal costs:\t\t").append(String.valueOf(totalMarginalCosts)).append('\n');
+		out.append("total backorder costs (H):\t").append(String.valueOf(backorderCosts[CRIT_H])).append('\n');
+		out.append("total backorder costs (M):\t").append(String.valueOf(backorderCosts[CRIT_M])).append('\n');
+		out.append("total backorder costs (L):\t").append(String.valueOf(backorderCosts[CRIT_L])).append('\n');
+		out.append("total backorder costs (Z):\t").append(String.valueOf(backorderCosts[CRIT_Z])).append('\n');
+		out.append("------------------------------------------\n");
+		out.append("TOTAL:\t\t\t\t").append(String.valueOf(getTotalCosts())).append("\n\n");
+
+		// summary based on group
+		out.append("GROUP\n");
+		out.append("-----\n");
+		for (int section = 0; section < SECTIONS.length; section++) {
+			int c = SECTIONS[section];
+			out.append(SECTION_TITLES[section]).append('\n');
+			double total_holding = 0.0;
+			double total_fixed = 0.0;
+			double total_marg = 0.0;
+			for (int g = 0; g < groups[c].size(); g++) {
+				out.append('\t').append(groups[c].name(g));
+				out.append('\t').append(String.valueOf(CSLGroup[c][g]));
+				out.append('\t').append(String.valueOf(fillRateGroup[c][g]));
+				out.append('\t').append(String.valueOf(holdingCostsGroup[c][g]));
+				out.append('\t').append(String.valueOf(fixedCostsGroup[c][g]));
+				out.append('\t').append(String.valueOf(marginalCostsGroup[c][g])).append('\n');
+				total_fixed += fixedCostsGroup[c][g];
+				total_holding += holdingCostsGroup[c][g];
+				total_marg += marginalCostsGroup[c][g];
+			}
+			out.append("\t\t\t\t\t\t\t\t").append(String.valueOf(total_holding));
+			out.append('\t').append(String.valueOf(total_fixed));
+			out.append('\t').append(String.valueOf(total_marg)).append('\n');
+			out.append('\n');
+		}
+	}
+
+	private void writeStats(Appendable out, String title, Stats stats) throws IOException {
+		out.append(title).append('\n');
+		out.append("---------\n");
+		out.append("min:\t").append(String.valueOf(stats.min())).append('\n');
+		out.append("mean:\t").append(String.valueOf(stats.mean())).append('\n');
+		out.append("max:\t").append(String.valueOf(stats.max())).append('\n');
+		out.append("std:\t").append(String.valueOf(stats.std())).append('\n');
+		out.append("p5:\t").append(String.valueOf(stats.p5())).append('\n');
+		out.append("median:\t").append(String.valueOf(stats.median())).append('\n');
+		out.append("p95:\t").append(String.valueOf(stats.p95())).append("\n\n");
+	}
+
+	@Override
+	public String toString() {
+		return summary();
+	}
+
+}
@@ -3,12 +3,15 @@ import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * 
@@ -21,10 +24,23 @@ import java.util.TreeSet;
 public class Simulator {
 	
 	// class variables
-	private Set<Material> materials;
-	private Scheduler scheduler;
+	private MaterialRegistry registry;
+	// events and performance measures refer to materials by their registry index, this array holds them in order
+	private Material[] materialIndex;
+	// policies and inventory during a run, the materials themselves are never modified
+	private InventoryState state;
+	// policies set after construction, not yet reflected in the registry
+	private ReorderPolicy[] newPolicies;
+	private PolicyParameters newParameters;
+	private boolean calendarQueue = false;
+	private boolean streamingDemand = true;
+	private boolean periodStepping = false;
+	private SimulationListener listener;
+	private ForkJoinPool pool;
+	private OutcomeCache cache;
 	private int horizon;
 	private Performance perf;
+	private SimulationResult result;
 	
 	// costs
 	private final double holding_costs = 0.25/12;
@@ -34,500 +50,486 @@ public class Simulator {
 	private final double stockout_costs_L = 30*24*50.0;
 	private final double stockout_costs_Z = 30*24*0.0;
 	
+	// number of consumption events per partition when simulating in parallel, independent of the pool size
+	private static final int PARTITION_EVENTS = 1 << 15;
+	
 	private double total_stockout_H = 0.0;
 	private double total_stockout_M = 0.0;
 	private double total_stockout_L = 0.0;
 	private double total_stockout_Z = 0.0;
 	
-	// groups
-	private Set<String> demandGroups;
-	private Set<String> priceGroups;
-	private Set<String> critGroups;
-	private Set<String> combinedGroups;
-	
-	// system state - auxiliary variable for determining holding and backorder costs
-	private Map<Material, Double> system_state;
-	private Set<Material> currentStockouts = new HashSet<>();
-	
-	// service measures
-	// fill rate
-	private Map<String, Double> fillRateDemandGroup;
-	private Map<String, Double> fillRatePriceGroup;
-	private Map<String, Double> fillRateCritGroup;
-	private Map<String, Double> fillRateCombinedGroup;
-	
-	// CSL
-	// class-based counters
-	private Map<String, Double> CSLDemandGroup;
-	private Map<String, Double> CSLPriceGroup;
-	private Map<String, Double> CSLCritGroup;
-	private Map<String, Double> CSLCombinedGroup;
-	
-	Map<String, Integer> groupTotalDemandDemand = new TreeMap<>();
-	Map<String, Integer> groupTotalDemandPrice = new TreeMap<>();
-	Map<String, Integer> groupTotalDemandCrit = new TreeMap<>();
-	Map<String, Integer> groupTotalDemandCombined = new TreeMap<>();
-	
-	Map<String, Integer> groupSizeDemand = new TreeMap<>();
-	Map<String, Integer> groupSizePrice = new TreeMap<>();
-	Map<String, Integer> groupSizeCrit = new TreeMap<>();
-	Map<String, Integer> groupSizeCombined = new TreeMap<>();
+	// groups of every classification (see GroupIndex), arrays are indexed by classification and group id
+	private GroupIndex[] groups;
+	private int[][] groupSize;
+	private int[][] groupTotalDemand;
+	
+	// service measures of the last run, weighted by the total positive demand of the materials
+	private double[][] fillRateGroup;
+	private double[][] CSLGroup;
 	
 	/**
 	 * Creates a Simulator class based of the data in file_name.
 	 * @param file_name	Location of the file with all material information.
 	 */
 	public Simulator(String file_name) {
-		// initialize all class variables
-		scheduler = new Scheduler();
-		system_state = new HashMap<>();
-		
-		CSLDemandGroup = new TreeMap<>();
-		CSLPriceGroup = new TreeMap<>();
-		CSLCritGroup = new TreeMap<>();
-		CSLCombinedGroup = new TreeMap<>();
-		fillRateDemandGroup = new TreeMap<>();
-		fillRatePriceGroup = new TreeMap<>();
-		fillRateCritGroup = new TreeMap<>();
-		fillRateCombinedGroup = new TreeMap<>();
-		demandGroups = new TreeSet<>();
-		priceGroups = new TreeSet<>();
-		critGroups = new TreeSet<>();
-		combinedGroups = new TreeSet<>();
-		
 		try {
-			materials = importMaterials(file_name);
-			perf = new Performance(materials);
-			for (Material m : materials) {
-				system_state.put(m, 0.0);
-				priceGroups.add(m.getPriceClass());
-				demandGroups.add(m.getDemandClass());
-				critGroups.add(m.criticality());
-				combinedGroups.add(m.getCombinedClass());
-			}
+			init(importMaterials(file_name));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 	
 	public Simulator(Set<Material> materials) {
-		// initialize all class variables
-//				this.file_name = file_name;
-		this.materials = materials;
-		scheduler = new Scheduler();
-		system_state = new HashMap<>();
-
-		CSLDemandGroup = new TreeMap<>();
-		CSLPriceGroup = new TreeMap<>();
-		CSLCritGroup = new TreeMap<>();
-		CSLCombinedGroup = new TreeMap<>();
-		fillRateDemandGroup = new TreeMap<>();
-		fillRatePriceGroup = new TreeMap<>();
-		fillRateCritGroup = new TreeMap<>();
-		fillRateCombinedGroup = new TreeMap<>();
-		demandGroups = new TreeSet<>();
-		priceGroups = new TreeSet<>();
-		critGroups = new TreeSet<>();
-		combinedGroups = new TreeSet<>();
+		this(new MaterialRegistry(materials));
+	}
+	
+	/**
+	 * Creates a Simulator class for the materials of a registry. The registry indices are used as material 
+	 * indices throughout the simulation.
+	 * 
+	 * @param registry	Materials to simulate.
+	 */
+	public Simulator(MaterialRegistry registry) {
+		init(registry);
+	}
+	
+	private void init(MaterialRegistry registry) {
+		this.registry = registry;
+		materialIndex = registry.toArray();
+		state = new InventoryState(materialIndex);
+		perf = new Performance(materialIndex);
+		if (materialIndex.length > 0)
+			horizon = materialIndex[0].getDemand().length;
 		
-		perf = new Performance(materials);
-		boolean first = true;
-		for (Material m : materials) {
-			if (first) {
-				horizon = m.getDemand().length;
-				first = false;
+		// group sizes and weights do not depend on the policies, so they are determined once
+		groups = new GroupIndex[4];
+		groupSize = new int[groups.length][];
+		groupTotalDemand = new int[groups.length][];
+		for (int c = 0; c < groups.length; c++) {
+			groups[c] = perf.getGroupIndex(c);
+			groupSize[c] = new int[groups[c].size()];
+			groupTotalDemand[c] = new int[groups[c].size()];
+		}
+		for (int i = 0; i < materialIndex.length; i++) {
+			int weight = materialIndex[i].totalPositiveDemand();
+			for (int c = 0; c < groups.length; c++) {
+				int g = groups[c].groupOf(i);
+				groupSize[c][g]++;
+				groupTotalDemand[c][g] += weight;
 			}
-			system_state.put(m, 0.0);
-			priceGroups.add(m.getPriceClass());
-			demandGroups.add(m.getDemandClass());
-			critGroups.add(m.criticality());
-			combinedGroups.add(m.getCombinedClass());
 		}
 	}
 	
 	/**
 	 * Does the actual Discrete-Event Simulation (DES). The DES is deterministic and we only need to run it once, so it's very fast.
 	 * 
-	 * @return	Output of the simulation summary.
+	 * @return	Result of the simulation, its toString() gives the simulation summary.
 	 */
-	public String simulate() {
-		String s = "";
-		
-		// start the iteration up
-		startup();
-				
-		// handle incoming events
-		while (scheduler.hasEvent() && scheduler.time() < horizon ) {
-			Event next_event = scheduler.nextEvent();
-			
-			// TODO: ONLY FOR DEBUGGING PURPOSES
-			Material m = next_event.associatedMaterial();
-			int deniedDemand = perf.deniedDemand.get(m);
-			int totalDemand = perf.totalDemand.get(m);
-			int nrStockouts = perf.countStockouts.get(m);
-			int nrCycles = perf.countCycles.get(m);
-			double FR = perf.fillRate(m);
-			double CSL = perf.CSL(m);
-			int IL = m.getInventoryLevel();
-			int IP = m.getInventoryPosition();
-			
-			// handle a consumption event
-			if (next_event instanceof ConsumptionEvent) {
-				ConsumptionEvent consumption_event = (ConsumptionEvent) next_event;
-				callbackConsumptionEvent(consumption_event);
-			} 
-					
-			// handle a reorder event
-			else if (next_event instanceof ReorderEvent) {
-				ReorderEvent reorder_event = (ReorderEvent) next_event;
-				callbackReorderEvent(reorder_event);
-			}
-			
-			// TODO: DEBUGGING PURPOSES ONLY
-			deniedDemand = perf.deniedDemand.get(m);
-			totalDemand = perf.totalDemand.get(m);
-			nrStockouts = perf.countStockouts.get(m);
-			nrCycles = perf.countCycles.get(m);
-			FR = perf.fillRate(m);
-			CSL = perf.CSL(m);
-			IL = m.getInventoryLevel();
-			IP = m.getInventoryPosition();
-			
-			// update holding costs
-//			Material m = next_event.associatedMaterial();
-			double prev_time_m = system_state.get(m);
-			double hold_costs = holding_costs*Math.max(0, m.getInventoryLevel())*
-					(scheduler.time() - prev_time_m)*m.getPrice();
-//			total_holding += hold_costs;
-			perf.addHoldingCosts(m, hold_costs);
-
-			// update stockout costs (based on criticality class)
-			if (m.isShort()) {
-				switch (m.criticality()) {
-				case "1":	total_stockout_H += stockout_costs_H;
-				case "2": 	total_stockout_M += stockout_costs_M;
-				case "3": 	total_stockout_L += stockout_costs_L;
-				default:	total_stockout_Z += stockout_costs_Z;
-				}
-			}
-			
-			// update system state
-			system_state.put(m, scheduler.time());
-		}
+	public SimulationResult simulate() {
+		// every run starts from the starting inventory of the policies
+		state.reset();
+		perf.reset();
+		if (cache != null && listener == null)
+			simulateCached();
+		else if (pool == null)
+			simulateSequential();
+		else
+			simulateParallel();
 				
 		// we are done, wrap up the simulation by calculating service measures
+		perf.rollUp();
+		calculateBackorderCosts();
 		calculateServiceMeasures();
-		s += summary();
 		
-		return s;
+		double[] backorderCosts = { total_stockout_H, total_stockout_M, total_stockout_L, total_stockout_Z };
+		result = new SimulationResult(materialIndex, perf, fillRateGroup, CSLGroup, backorderCosts);
+		return result;
+	}
+	
+	private void simulateSequential() {
+		SimulationEngine engine = createEngine(0, materialIndex.length);
+		engine.run();
+		
+		// the simulation ends with the first event past the horizon
+		if (engine.nextEventTime() != Double.POSITIVE_INFINITY)
+			engine.handleNextEvent();
 	}
 	
 	/**
-	 * Exports the fill rates per material.
-	 * 
-	 * @return	Fill rates per material.
+	 * Simulates contiguous ranges of materials on the pool. Materials never interact, so every partition gets 
+	 * its own engine, and the partitions only write the performance entries of their own materials. Totals 
+	 * are rolled up afterwards in material order, so the outcome is the same for any number of threads.
 	 */
-//	public Map<Material, Double> getFillRates() {
-//		return fillRate;
-//	}
-	
-	private String summary() {
-		String s = "SIMULATION SUMMARY\n";
-		s += "==================\n";
-		
-		// FILL RATE
-		Map<Material, Double> fillRate = perf.fillRateAll();
-		// determine min fill rate
-		double min_fr = Stats.min(fillRate);
-		// determine max fill rate
-		double max_fr = Stats.max(fillRate);
-		// determine mean fill rate
-		double mean_fr = Stats.mean(fillRate);
-		// determine std of fill rate
-		double std_fr = Stats.std(fillRate);
-		
-		s += "fill rate\n";
-		s += "---------\n";
-		s += "min:\t" + min_fr + "\n";
-		s += "mean:\t" + mean_fr + "\n";
-		s += "max:\t" + max_fr + "\n";
-		s += "std:\t" + std_fr + "\n\n";
-		
-		// FILL RATE
-		Map<Material, Double> CSL = perf.CSLAll();
-		// determine min fill rate
-		double min_csl = Stats.min(CSL);
-		// determine max fill rate
-		double max_csl = Stats.max(CSL);
-		// determine mean fill rate
-		double mean_csl = Stats.mean(CSL);
-		// determine std of fill rate
-		double std_csl = Stats.std(CSL);
-
-		s += "cycle service level\n";
-		s += "---------\n";
-		s += "min:\t" + min_csl + "\n";
-		s += "mean:\t" + mean_csl + "\n";
-		s += "max:\t" + max_csl + "\n";
-		s += "std:\t" + std_csl + "\n\n";
+	private void simulateParallel() {
+		int[] bounds = partition();
+		int parts = bounds.length - 1;
+		final SimulationEngine[] engines = new SimulationEngine[parts];
+		List<Callable<Void>> tasks = new ArrayList<>(parts);
+		for (int p = 0; p < parts; p++) {
+			engines[p] = createEngine(bounds[p], bounds[p + 1]);
+			final SimulationEngine engine = engines[p];
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					engine.run();
+					return null;
+				}
+			});
+		}
 		
-		// OVERVIEW OF COSTS
-		s += "cost overview\n";
-		s += "-------------\n";
-		s += "total fixed costs:\t\t" + perf.getTotalFixedCosts() + "\n";
-		s += "total holding costs:\t\t" + perf.getTotalHoldingCosts() + "\n";
-		s += "total marginal costs:\t\t" + perf.getTotalMarginalCosts() + "\n";
-		s += "total backorder costs (H):\t" + total_stockout_H + "\n";
-		s += "total backorder costs (M):\t" + total_stockout_M + "\n";
-		s += "total backorder costs (L):\t" + total_stockout_L + "\n";
-		s += "total backorder costs (Z):\t" + total_stockout_Z + "\n";
-		s += "------------------------------------------\n";
-		double total_costs = perf.getTotalCosts();
-//				total_stockout_H + total_stockout_M + total_stockout_L + total_stockout_Z;
-		s += "TOTAL:\t\t\t\t" + total_costs + "\n\n";
+		invokeAll(tasks);
 		
-		// summary based on group
-		s += "GROUP\n";
-		s += "-----\n";
-		s += "Demand\t\tCSL\t\t\tFR\t\t\tHC\t\t\tFC\t\tMC\n";
-		double demand_total_holding = 0.0;
-		double demand_total_fixed = 0.0;
-		double demand_total_marg = 0.0;
-		for (String group : demandGroups) {
-			s += "\t" + group + "\t" + CSLDemandGroup.get(group) + "\t" + fillRateDemandGroup.get(group) + "\t" + 
-		perf.getDemandGroupHoldingCosts(group) + "\t" + perf.getDemandGroupFixedCosts(group) + "\t" + perf.getDemandGroupMarginalCosts(group) + "\n";
-			demand_total_fixed += perf.getDemandGroupFixedCosts(group);
-			demand_total_holding += perf.getDemandGroupHoldingCosts(group);
-			demand_total_marg += perf.getDemandGroupMarginalCosts(group);
+		// the simulation ends with the first event past the horizon, the lowest material index wins ties
+		int first = -1;
+		double firstTime = Double.POSITIVE_INFINITY;
+		for (int p = 0; p < parts; p++) {
+			double t = engines[p].nextEventTime();
+			if (t < firstTime) {
+				first = p;
+				firstTime = t;
+			}
 		}
-		s += "\t\t\t\t\t\t\t\t" + demand_total_holding + "\t" + demand_total_fixed + "\t" + demand_total_marg + "\n";
-		s += "\n";
-		s += "Price\n";
-		
-		double price_total_holding = 0.0;
-		double price_total_fixed = 0.0;
-		double price_total_marg = 0.0;
-		for (String group : priceGroups) {
-			s += "\t" + group + "\t" + CSLPriceGroup.get(group) + "\t" + fillRatePriceGroup.get(group) + "\t" + 
-		perf.getPriceGroupHoldingCosts(group) + "\t" + perf.getPriceGroupFixedCosts(group) + "\t" + perf.getPriceGroupMarginalCosts(group) + "\n";
-			price_total_fixed += perf.getPriceGroupFixedCosts(group);
-			price_total_holding += perf.getPriceGroupHoldingCosts(group);
-			price_total_marg += perf.getPriceGroupMarginalCosts(group);
+		if (first >= 0)
+			engines[first].handleNextEvent();
+	}
+	
+	/**
+	 * Restores the outcomes of the materials whose policy is in the cache, and simulates the others one 
+	 * material at a time, on the pool if there is one. Every outcome is the same as in a run of all materials, 
+	 * and so is the first event past the horizon, which is applied to the material it belongs to.
+	 */
+	private void simulateCached() {
+		final int n = materialIndex.length;
+		final OutcomeCache.Key[] keys = new OutcomeCache.Key[n];
+		final OutcomeCache.CachedOutcome[] entries = new OutcomeCache.CachedOutcome[n];
+		List<Integer> misses = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			keys[i] = OutcomeCache.key(materialIndex[i], state, i);
+			entries[i] = cache.get(keys[i]);
+			if (entries[i] == null)
+				misses.add(i);
 		}
-		s += "\t\t\t\t\t\t\t\t" + price_total_holding + "\t" + price_total_fixed + "\t" + price_total_marg + "\n";
-		s += "\n";
-		s += "Criticality\n";
 		
-		double crit_total_holding = 0.0;
-		double crit_total_fixed = 0.0;
-		double crit_total_marg = 0.0;
-		for (String group : critGroups) {
-			s += "\t" + group + "\t" + CSLCritGroup.get(group) + "\t" + fillRateCritGroup.get(group) + "\t" + 
-		perf.getCritGroupHoldingCosts(group) + "\t" + perf.getCritGroupFixedCosts(group) + "\t" + perf.getCritGroupMarginalCosts(group) + "\n";
-			crit_total_fixed += perf.getCritGroupFixedCosts(group);
-			crit_total_holding += perf.getCritGroupHoldingCosts(group);
-			crit_total_marg += perf.getCritGroupMarginalCosts(group);
+		if (pool == null) {
+			for (int i : misses)
+				entries[i] = simulateMaterial(i, keys[i]);
+		} else {
+			// contiguous chunks of the misses with about PARTITION_EVENTS consumption events each
+			List<Callable<Void>> tasks = new ArrayList<>();
+			int start = 0;
+			int events = 0;
+			for (int k = 0; k < misses.size(); k++) {
+				events += demandEvents(misses.get(k));
+				if (events >= PARTITION_EVENTS || k + 1 == misses.size()) {
+					final List<Integer> chunk = misses.subList(start, k + 1);
+					tasks.add(new Callable<Void>() {
+						@Override
+						public Void call() {
+							for (int i : chunk)
+								entries[i] = simulateMaterial(i, keys[i]);
+							return null;
+						}
+					});
+					start = k + 1;
+					events = 0;
+				}
+			}
+			invokeAll(tasks);
 		}
-		s += "\t\t\t\t\t\t\t\t" + crit_total_holding + "\t" + crit_total_fixed + "\t" + crit_total_marg + "\n";
-		s += "\n";
-		s += "Combined\n";
 		
-		double combined_total_holding = 0.0;
-		double combined_total_fixed = 0.0;
-		double combined_total_marg = 0.0;
-		for (String group : combinedGroups) {
-			s += "\t" + group + "\t" + CSLCombinedGroup.get(group) + "\t" + fillRateCombinedGroup.get(group) + "\t" + 
-		 perf.getCombinedGroupHoldingCosts(group) + "\t" + perf.getCombinedGroupFixedCosts(group) + "\t" + perf.getCombinedGroupMarginalCosts(group) + "\n";
-			combined_total_fixed += perf.getCombinedGroupFixedCosts(group);
-			combined_total_holding += perf.getCombinedGroupHoldingCosts(group);
-			combined_total_marg += perf.getCombinedGroupMarginalCosts(group);
+		// the simulation ends with the first event past the horizon, the lowest material index wins ties
+		int first = -1;
+		double firstTime = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			perf.restore(i, entries[i].outcome());
+			if (entries[i].nextEventTime() < firstTime) {
+				first = i;
+				firstTime = entries[i].nextEventTime();
+			}
 		}
-		s += "\t\t\t\t\t\t\t\t" + combined_total_holding + "\t" + combined_total_fixed + "\t" + combined_total_marg + "\n";
-		s += "\n";
-
-		return s;
+		if (first >= 0)
+			perf.restore(first, entries[first].outcomeAfterNextEvent());
 	}
 	
-	private void callbackReorderEvent(ReorderEvent re) {
-		Material m = re.associatedMaterial();
-		int amount = re.quantity();
-		m.replenishInventoryLevel(amount);
-		
-		// cycle ended
-//		stockout.remove(m);
-//		perf.endCycle(m);
+	/**
+	 * Simulates a single material and caches its outcome, with and without its first event past the horizon.
+	 * 
+	 * @param i		Material index.
+	 * @param key	Cache key of the material.
+	 * @return		Cache entry of the material.
+	 */
+	private OutcomeCache.CachedOutcome simulateMaterial(int i, OutcomeCache.Key key) {
+		SimulationEngine engine = createEngine(i, i + 1);
+		engine.run();
+		MaterialOutcome outcome = perf.outcome(i);
+		double nextEventTime = engine.nextEventTime();
+		MaterialOutcome outcomeAfterNextEvent = null;
+		if (nextEventTime != Double.POSITIVE_INFINITY) {
+			engine.handleNextEvent();
+			outcomeAfterNextEvent = perf.outcome(i);
+		}
+		OutcomeCache.CachedOutcome entry = new OutcomeCache.CachedOutcome(outcome, nextEventTime, outcomeAfterNextEvent);
+		cache.put(key, entry);
+		return entry;
 	}
 	
-	private void callbackConsumptionEvent(ConsumptionEvent ce) {
-		Material m = ce.associatedMaterial();
-		int consumption = ce.demand();
-//		if (consumption > m.getMaxStock())
-//			throw new IllegalStateException("Demand larger than max stock.");
-		
-		// we have a 'visit', so update counter
-//		totalVisits.put(m, totalVisits.get(m) + 1);
-		if (consumption > 0)
-			perf.addDemand(m, consumption);
-		
-		// check if we are able to supply demand and update service levels
-		int stockOnhand = Math.max(m.getInventoryLevel(), 0);
-		if (consumption > stockOnhand) {
-			// fill rate
-//			fillDenials.put(m, fillDenials.get(m) + 1);
-			perf.deniedDemand(m, consumption - stockOnhand);
+	private void invokeAll(List<Callable<Void>> tasks) {
+		try {
+			for (Future<Void> f : pool.invokeAll(tasks))
+				f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Simulation interrupted.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException(e.getCause());
 		}
-		
-		// CSL
-//		if (consumption > m.getInventoryPosition() && !stockout.contains(m)) {
-		if (consumption > m.getInventoryLevel() && m.getInventoryLevel() > 0 && !currentStockouts.contains(m)) {
-			// we just stocked out, so process it
-//			stockouts.put(m, stockouts.get(m) + 1);
-			perf.stockout(m);
-			currentStockouts.add(m);
-//			stockout.add(m);
+	}
+	
+	private int demandEvents(int i) {
+		int[] demand = materialIndex[i].getDemand();
+		int events = 0;
+		for (int t = 0; t < horizon; t++) {
+			if (demand[t] != 0)
+				events++;
 		}
+		return events;
+	}
+	
+	/**
+	 * Splits the material indices into contiguous ranges with about PARTITION_EVENTS consumption events each.
+	 * 
+	 * @return	Range bounds, partition p covers the indices from bounds[p] up to bounds[p + 1].
+	 */
+	private int[] partition() {
+		List<Integer> bounds = new ArrayList<>();
+		bounds.add(0);
+		int events = 0;
+		for (int i = 0; i < materialIndex.length; i++) {
+			events += demandEvents(i);
+			if (events >= PARTITION_EVENTS && i + 1 < materialIndex.length) {
+				bounds.add(i + 1);
+				events = 0;
+			}
+		}
+		bounds.add(materialIndex.length);
 		
-		// consume the material
-		m.consume(consumption);
-		
-		// if stock falls below minimum allowed stock, we schedule reorder event
-		if (m.doReorder()) {
-			int lead_time = (int)Math.ceil(m.getLeadTime());
-			int quantity = m.reorder();
-			scheduler.addReorderEvent(m, quantity, scheduler.time() + lead_time);
-			// new cycle started
-			perf.startCycle(m);
-			currentStockouts.remove(m);
-			
-			// update inventory position
-			m.replenishInventoryPosition(quantity);
-			
-			// incur fixed reorder costs
-			perf.addFixedCosts(m, fixed_costs);
-			
-			// incur marginal reorder costs
-			double marg_costs = m.getPrice()*quantity;
-			perf.addMarginalCosts(m, marg_costs);
+		int[] b = new int[bounds.size()];
+		for (int p = 0; p < b.length; p++)
+			b[p] = bounds.get(p);
+		return b;
+	}
+	
+	private SimulationEngine createEngine(int from, int to) {
+		return createEngine(materialIndex, from, to, perf, state, listener);
+	}
+	
+	private SimulationEngine createEngine(Material[] materials, int from, int to, Performance perf, 
+			InventoryState state, SimulationListener listener) {
+		if (periodStepping)
+			return new PeriodStepper(materials, from, to, horizon, perf, state, holding_costs, fixed_costs, 
+					listener);
+		return new EventLoop(materials, from, to, horizon, perf, state, holding_costs, fixed_costs, listener, 
+				calendarQueue, streamingDemand);
+	}
+	
+	/**
+	 * Simulates a single material with a certain policy, up to the horizon. The policies, results and listener 
+	 * of the simulator are not involved, so this can be called from several threads, e.g. to evaluate many 
+	 * policies of the same material. The service measures are the same as in a run of all materials, the 
+	 * costs may lack the first event past the horizon.
+	 * 
+	 * @param index		Material index.
+	 * @param policy	Policy to simulate the material with.
+	 * @return			Outcome of the material.
+	 */
+	public MaterialOutcome simulate(int index, ReorderPolicy policy) {
+		Material[] single = { new Material(materialIndex[index], policy) };
+		Performance singlePerf = new Performance(single);
+		createEngine(single, 0, 1, singlePerf, new InventoryState(single), null).run();
+		return singlePerf.outcome(0);
+	}
+	
+	/**
+	 * Determines the stockout costs, based on criticality class, of all events after which a material had 
+	 * backorders.
+	 */
+	private void calculateBackorderCosts() {
+		total_stockout_H = 0.0;
+		total_stockout_M = 0.0;
+		total_stockout_L = 0.0;
+		total_stockout_Z = 0.0;
+		for (int i = 0; i < materialIndex.length; i++) {
+			int backorders = perf.getBackorders(i);
+			if (backorders == 0)
+				continue;
+			switch (materialIndex[i].criticality()) {
+			case "1":	total_stockout_H += stockout_costs_H*backorders;
+			case "2": 	total_stockout_M += stockout_costs_M*backorders;
+			case "3": 	total_stockout_L += stockout_costs_L*backorders;
+			default:	total_stockout_Z += stockout_costs_Z*backorders;
+			}
 		}
 	}
 	
+	/**
+	 * Exports the fill rates per material.
+	 * 
+	 * @return	Fill rates per material.
+	 */
+//	public Map<Material, Double> getFillRates() {
+//		return fillRate;
+//	}
+	
 //	private int detLeadTime(int lead_time) {
 //		return (int)Math.ceil((double)lead_time/(double)30);
 //	}
 	
-	private void calculateServiceMeasures() {		
-		// init variables
-		for (String group : demandGroups) {
-			groupTotalDemandDemand.put(group, 0);
-			fillRateDemandGroup.put(group, 0.0);
-			CSLDemandGroup.put(group, 0.0);
-			groupSizeDemand.put(group, 0);
-		}
-		for (String group : priceGroups) {
-			groupTotalDemandPrice.put(group, 0);
-			fillRatePriceGroup.put(group, 0.0);
-			CSLPriceGroup.put(group, 0.0);
-			groupSizePrice.put(group, 0);
-		}
-		for (String group : critGroups) {
-			groupTotalDemandCrit.put(group, 0);
-			fillRateCritGroup.put(group, 0.0);
-			CSLCritGroup.put(group, 0.0);
-			groupSizeCrit.put(group, 0);
-		}
-		for (String group : combinedGroups) {
-			groupTotalDemandCombined.put(group, 0);
-			fillRateCombinedGroup.put(group, 0.0);
-			CSLCombinedGroup.put(group, 0.0);
-			groupSizeCombined.put(group, 0);
-		}
-		
-		// group counts
-		for (Material m : materials) {
-			String demandGroup = m.getDemandClass();
-			String priceGroup = m.getPriceClass();
-			String critGroup = m.criticality();
-			String combinedGroup = m.getCombinedClass();
-			
-			groupSizeDemand.put(demandGroup, groupSizeDemand.get(demandGroup) + 1);
-			groupSizePrice.put(priceGroup, groupSizePrice.get(priceGroup) + 1);
-			groupSizeCrit.put(critGroup, groupSizeCrit.get(critGroup) + 1);
-			groupSizeCombined.put(combinedGroup, groupSizeCombined.get(combinedGroup) + 1);
-		}
-		
-		// determine total group weight
-		for (Material m : materials) {
-			String demandGroup = m.getDemandClass();
-			String priceGroup = m.getPriceClass();
-			String critGroup = m.criticality();
-			String combinedGroup = m.getCombinedClass();
-			
-			groupTotalDemandDemand.put(demandGroup, groupTotalDemandDemand.get(demandGroup) + m.totalPositiveDemand());
-			groupTotalDemandPrice.put(priceGroup, groupTotalDemandPrice.get(priceGroup) + m.totalPositiveDemand());
-			groupTotalDemandCrit.put(critGroup, groupTotalDemandCrit.get(critGroup) + m.totalPositiveDemand());
-			groupTotalDemandCombined.put(combinedGroup, groupTotalDemandCombined.get(combinedGroup) + m.totalPositiveDemand());
+	/**
+	 * Determines the fill rate and CSL of every group in one pass over the materials. The service levels of 
+	 * the materials in a group are weighted by their total positive demand.
+	 */
+	private void calculateServiceMeasures() {
+		// new arrays, the previous ones belong to the previous result
+		fillRateGroup = new double[groups.length][];
+		CSLGroup = new double[groups.length][];
+		for (int c = 0; c < groups.length; c++) {
+			fillRateGroup[c] = new double[groups[c].size()];
+			CSLGroup[c] = new double[groups[c].size()];
 		}
 		
 		// determine weighted sum of all service levels
-		for (Material m : materials) {
-			String demandGroup = m.getDemandClass();
-			String priceGroup = m.getPriceClass();
-			String critGroup = m.criticality();
-			String combinedGroup = m.getCombinedClass();
-			
-			CSLDemandGroup.put(demandGroup, CSLDemandGroup.get(demandGroup) + perf.CSL(m)*m.totalPositiveDemand());
-			fillRateDemandGroup.put(demandGroup, fillRateDemandGroup.get(demandGroup) + perf.fillRate(m)*m.totalPositiveDemand());
-			
-			CSLPriceGroup.put(priceGroup, CSLPriceGroup.get(priceGroup) + perf.CSL(m)*m.totalPositiveDemand());
-			fillRatePriceGroup.put(priceGroup, fillRatePriceGroup.get(priceGroup) + perf.fillRate(m)*m.totalPositiveDemand());
-			
-			CSLCritGroup.put(critGroup, CSLCritGroup.get(critGroup) + perf.CSL(m)*m.totalPositiveDemand());
-			fillRateCritGroup.put(critGroup, fillRateCritGroup.get(critGroup) + perf.fillRate(m)*m.totalPositiveDemand());
-			
-			CSLCombinedGroup.put(combinedGroup, CSLCombinedGroup.get(combinedGroup) + perf.CSL(m)*m.totalPositiveDemand());
-			fillRateCombinedGroup.put(combinedGroup, fillRateCombinedGroup.get(combinedGroup) + perf.fillRate(m)*m.totalPositiveDemand());
-		}
-		// divide by group size to determine average service levels per group
-		for (String group : demandGroups) {
-			CSLDemandGroup.put(group, CSLDemandGroup.get(group) / groupTotalDemandDemand.get(group));
-			fillRateDemandGroup.put(group, fillRateDemandGroup.get(group) / groupTotalDemandDemand.get(group));
-		}
-		for (String group : priceGroups) {
-			CSLPriceGroup.put(group, CSLPriceGroup.get(group) / groupTotalDemandPrice.get(group));
-			fillRatePriceGroup.put(group, fillRatePriceGroup.get(group) / groupTotalDemandPrice.get(group));
-		}
-		for (String group : critGroups) {
-			CSLCritGroup.put(group, CSLCritGroup.get(group) / groupTotalDemandCrit.get(group));
-			fillRateCritGroup.put(group, fillRateCritGroup.get(group) / groupTotalDemandCrit.get(group));
-		}
-		for (String group : combinedGroups) {
-			CSLCombinedGroup.put(group, CSLCombinedGroup.get(group) / groupTotalDemandCombined.get(group));
-			fillRateCombinedGroup.put(group, fillRateCombinedGroup.get(group) / groupTotalDemandCombined.get(group));
+		for (int i = 0; i < materialIndex.length; i++) {
+			int weight = materialIndex[i].totalPositiveDemand();
+			double csl = perf.CSL(i)*weight;
+			double fr = perf.fillRate(i)*weight;
+			for (int c = 0; c < groups.length; c++) {
+				int g = groups[c].groupOf(i);
+				CSLGroup[c][g] += csl;
+				fillRateGroup[c][g] += fr;
+			}
 		}
 		
-		// check if all materials are accounted for in combined class
-//		for (String k : groupSizesCombined.keySet())
-//			System.out.println(k + ": " + groupSizesCombined.get(k));
-	}
-	
-	private void startup() {
-		// all demand is known beforehand, so populate scheduler with all consumption events
-		for (Material m : materials) {
-			for (int t = 0; t < horizon; t++) {
-				int material_demand = m.demand(t);
-				
-				// if there is a demand, add a consumption event
-				if (material_demand != 0)
-					scheduler.addConsumptionEvent(m, material_demand, t);
+		// divide by group weight to determine average service levels per group
+		for (int c = 0; c < groups.length; c++) {
+			for (int g = 0; g < groups[c].size(); g++) {
+				CSLGroup[c][g] /= groupTotalDemand[c][g];
+				fillRateGroup[c][g] /= groupTotalDemand[c][g];
 			}
 		}
 	}
 	
+	/**
+	 * Replaces the reorder policies of all materials for the next simulate(), e.g. to evaluate other targets. 
+	 * Only the policy parameters of the run are updated; the materials are not copied, and other simulators 
+	 * sharing the same materials are not affected.
+	 * 
+	 * @param policies	Reorder policy per material index.
+	 */
+	public void setPolicies(ReorderPolicy[] policies) {
+		if (policies.length != materialIndex.length)
+			throw new IllegalArgumentException("Expected " + materialIndex.length + " policies, got " + policies.length);
+		for (int i = 0; i < policies.length; i++)
+			state.setPolicy(i, policies[i]);
+		newPolicies = policies.clone();
+		newParameters = null;
+	}
+	
+	/**
+	 * Replaces the reorder policies of all materials by policy parameters for the next simulate(), like 
+	 * setPolicies(ReorderPolicy[]) but without creating policy objects; they are only created when getRegistry() 
+	 * asks for them. The parameters must not be changed afterwards.
+	 * 
+	 * @param policies	Policy parameters per material index.
+	 */
+	public void setPolicies(PolicyParameters policies) {
+		if (policies.size() != materialIndex.length)
+			throw new IllegalArgumentException("Expected " + materialIndex.length + " policies, got " + policies.size());
+		state.setPolicies(policies);
+		newPolicies = null;
+		newParameters = policies;
+	}
+	
+	/**
+	 * Simulates the materials in parallel on a pool. The materials are split into contiguous ranges of about 
+	 * equal numbers of demand events, which are simulated independently and merged in a fixed order, so the 
+	 * results are identical for any pool size. With a listener, the callbacks may come from several threads.
+	 * 
+	 * @param pool	Pool to simulate on, or null to simulate on the calling thread (the default).
+	 */
+	public void setForkJoinPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * Caches the outcome of every simulated material by the parameters of its policy, so a material is only 
+	 * simulated again when its policy changes. The results are the same as without a cache. The cache is not 
+	 * used while a listener is registered, since cached materials would not produce any events.
+	 * 
+	 * @param cache	Cache to use, it may be shared by simulators of the same materials, or null for no cache.
+	 */
+	public void setOutcomeCache(OutcomeCache cache) {
+		this.cache = cache;
+	}
+	
+	public OutcomeCache getOutcomeCache() {
+		return cache;
+	}
+	
+	/**
+	 * Selects the event queue used by the scheduler. By default events are kept in a binary heap (EventList). 
+	 * Since all events take place on whole periods, a calendar queue with one bucket per period can be used 
+	 * instead, which handles the events of a period as one batch. Both produce exactly the same results.
+	 * 
+	 * @param calendarQueue	True to use a calendar queue, false to use the binary heap.
+	 */
+	public void setCalendarQueue(boolean calendarQueue) {
+		this.calendarQueue = calendarQueue;
+	}
+	
+	/**
+	 * Registers a listener which is notified of every consumption, stockout, reorder and order arrival. Without
+	 * a listener the simulation does no event bookkeeping beyond the performance measures.
+	 * 
+	 * @param listener	Listener to notify, or null to remove the current listener.
+	 */
+	public void setListener(SimulationListener listener) {
+		this.listener = listener;
+	}
+	
+	/**
+	 * Selects the simulation engine. By default the simulation is event-driven. With period stepping, all 
+	 * materials are advanced one period at a time over primitive arrays instead (see PeriodStepper), which is 
+	 * faster for catalogs where most materials have demand in most periods. Both produce exactly the same 
+	 * performance measures.
+	 * 
+	 * @param periodStepping	True to advance period by period, false for the event-driven simulation.
+	 */
+	public void setPeriodStepping(boolean periodStepping) {
+		this.periodStepping = periodStepping;
+	}
+	
+	/**
+	 * Selects how consumption events are scheduled. When streaming (the default), every material only has its 
+	 * next demand occurrence in the scheduler, and the following one is scheduled when it is consumed. This 
+	 * keeps the number of scheduled events in the order of the number of materials. Otherwise all consumption 
+	 * events over the horizon are scheduled up front. Both produce exactly the same results.
+	 * 
+	 * @param streamingDemand	True to schedule consumptions one at a time, false to schedule all up front.
+	 */
+	public void setStreamingDemand(boolean streamingDemand) {
+		this.streamingDemand = streamingDemand;
+	}
+	
 	public void exportServiceMeasures(String prefix) throws IOException {
+		if (result == null)
+			throw new IllegalStateException("Nothing to export, simulate() has not been called.");
+		
 		// fill rate
 		BufferedWriter bw = new BufferedWriter(new FileWriter(prefix + "_fill_rates.csv"));
-		for (Material m : materials) {
-			bw.write(m.getId() + "," + perf.fillRate(m));
+		for (int i = 0; i < materialIndex.length; i++) {
+			bw.write(materialIndex[i].getId() + "," + perf.fillRate(i));
 			bw.newLine();
 		}
 		bw.flush();
@@ -535,8 +537,8 @@ public class Simulator {
 		
 		// CSL
 		bw = new BufferedWriter(new FileWriter(prefix + "_CSL.csv"));
-		for (Material m : materials) {
-			bw.write(m.getId() + "," + perf.CSL(m));
+		for (int i = 0; i < materialIndex.length; i++) {
+			bw.write(materialIndex[i].getId() + "," + perf.CSL(i));
 			bw.newLine();
 		}
 		bw.flush();
@@ -548,22 +550,27 @@ public class Simulator {
 		bw.write("Price,Demand,Criticality,CSL,Fill rate,Fixed costs,Holding costs,Marginal costs,Total costs (no marginal),Total costs,Weights,Counts");
 		bw.newLine();
 		
-		for (String group : combinedGroups) {
+		int combined = GroupIndex.COMBINED;
+		for (int g = 0; g < groups[combined].size(); g++) {
+			String group = groups[combined].name(g);
 //			s += group.charAt(0) + ",";
 			bw.write(group.charAt(0) + ",");
 			if (group.length() == 3)
 				bw.write(group.charAt(1) + "," + group.charAt(2) + ",");
 			else
 				bw.write(group.substring(1, 3) + "," + group.charAt(3) + ",");
-			bw.write(CSLCombinedGroup.get(group) + ",");
-			bw.write(fillRateCombinedGroup.get(group) + ",");
-			bw.write(perf.getCombinedGroupFixedCosts(group) + ",");
-			bw.write(perf.getCombinedGroupHoldingCosts(group) + ",");
-			bw.write(perf.getCombinedGroupMarginalCosts(group) + ",");
-			bw.write((perf.getCombinedGroupFixedCosts(group) + perf.getCombinedGroupHoldingCosts(group)) + ",");
-			bw.write((perf.getCombinedGroupFixedCosts(group) + perf.getCombinedGroupHoldingCosts(group) + perf.getCombinedGroupMarginalCosts(group)) + ",");
-			bw.write(groupTotalDemandCombined.get(group) + ",");
-			bw.write(groupSizeCombined.get(group) + "");
+			double fixed = perf.getGroupFixedCosts(combined, g);
+			double holding = perf.getGroupHoldingCosts(combined, g);
+			double marginal = perf.getGroupMarginalCosts(combined, g);
+			bw.write(CSLGroup[combined][g] + ",");
+			bw.write(fillRateGroup[combined][g] + ",");
+			bw.write(fixed + ",");
+			bw.write(holding + ",");
+			bw.write(marginal + ",");
+			bw.write((fixed + holding) + ",");
+			bw.write((fixed + holding + marginal) + ",");
+			bw.write(groupTotalDemand[combined][g] + ",");
+			bw.write(groupSize[combined][g] + "");
 			bw.newLine();
 		}
 		bw.flush();
@@ -571,7 +578,7 @@ public class Simulator {
 		
 		// write summary
 		bw = new BufferedWriter(new FileWriter(prefix + "_summary.txt"));
-		bw.write(summary());
+		result.writeSummary(bw);
 		bw.flush();
 		bw.close();
 		
@@ -579,11 +586,12 @@ public class Simulator {
 //		bw.write("Price,Demand,Criticality,CSL,Fill rate,Fixed costs,Holding costs,Marginal costs,Total costs (no marginal),Total costs,Weights,Counts");
 //		bw.newLine();
 		
-		for (Material m : materials) {
+		for (int index = 0; index < materialIndex.length; index++) {
+			Material m = materialIndex[index];
 			bw.write(m.getId() + ",");
 			bw.write(Math.round(m.getLeadTime()) + ",");
-			bw.write(m.getReorderPoint() + ",");
-			bw.write(m.getMaxStock() + ",");
+			bw.write(state.reorderPoint(index) + ",");
+			bw.write(state.maxStock(index) + ",");
 			bw.write(0 + ",");
 			bw.write(m.getPrice() + ",");
 			bw.write(m.getCritH() + ",");
@@ -606,13 +614,13 @@ public class Simulator {
 		
 		// write summary
 		bw = new BufferedWriter(new FileWriter(prefix + "_summary.txt"));
-		bw.write(summary());
+		result.writeSummary(bw);
 		bw.flush();
 		bw.close();
 	}
 	
-	public Set<Material> importMaterials(String file_name) throws IOException {
-		Set<Material> imported = new TreeSet<>();
+	public MaterialRegistry importMaterials(String file_name) throws IOException {
+		List<Material> imported = new ArrayList<>();
 		BufferedReader br = new BufferedReader(new FileReader(file_name));
 		String line = br.readLine();
 		boolean first = true;
@@ -686,50 +694,68 @@ public class Simulator {
 		}
 		br.close();
 		
-		return imported;
+		return new MaterialRegistry(imported);
 	}
 	
 	public Map<String, Double> getRealizedCSLCombined() {
-		return CSLCombinedGroup;
+		return result.getRealizedCSLCombined();
 	}
 	
 	public Map<String, Double> getRealizedFRCombined() {
-		return fillRateCombinedGroup;
+		return result.getRealizedFRCombined();
 	}
 	
 	public Set<Material> getMaterials() {
-		return materials;
+		return getRegistry().toSet();
+	}
+	
+	/**
+	 * Returns the simulated materials with their current policies.
+	 * 
+	 * @return	Registry of the materials.
+	 */
+	public MaterialRegistry getRegistry() {
+		if (newParameters != null) {
+			newPolicies = newParameters.toPolicies();
+			newParameters = null;
+		}
+		if (newPolicies != null) {
+			registry = registry.withPolicies(newPolicies);
+			newPolicies = null;
+		}
+		return registry;
 	}
 	
 	public double totalHoldingCosts() {
 		double costs = 0.0;
-		for (String group : combinedGroups) {
-			costs += perf.getCombinedGroupHoldingCosts(group);
+		for (int g = 0; g < groups[GroupIndex.COMBINED].size(); g++) {
+			costs += perf.getGroupHoldingCosts(GroupIndex.COMBINED, g);
 		}
 		return costs;
 	}
 	
 	public double totalFixedCosts() {
 		double costs = 0.0;
-		for (String group : combinedGroups) {
-			costs += perf.getCombinedGroupFixedCosts(group);
+		for (int g = 0; g < groups[GroupIndex.COMBINED].size(); g++) {
+			costs += perf.getGroupFixedCosts(GroupIndex.COMBINED, g);
 		}
 		return costs;
 	}
 	
 	public double totalMarginalCosts() {
 		double costs = 0.0;
-		for (String group : combinedGroups) {
-			costs += perf.getCombinedGroupMarginalCosts(group);
+		for (int g = 0; g < groups[GroupIndex.COMBINED].size(); g++) {
+			costs += perf.getGroupMarginalCosts(GroupIndex.COMBINED, g);
 		}
 		return costs;
 	}
 	
 	public Map<String, Double> getTotalCostsCombined() {
 		Map<String, Double> map = new TreeMap<>();
-		for (String group : combinedGroups) {
-			map.put(group, perf.getCombinedGroupFixedCosts(group) + 
-					perf.getCombinedGroupHoldingCosts(group));
+		GroupIndex combined = groups[GroupIndex.COMBINED];
+		for (int g = 0; g < combined.size(); g++) {
+			map.put(combined.name(g), perf.getGroupFixedCosts(GroupIndex.COMBINED, g) + 
+					perf.getGroupHoldingCosts(GroupIndex.COMBINED, g));
 		}
 		return map;
 	}
@@ -1,40 +1,219 @@
+import java.util.Arrays;
 import java.util.Map;
 
+/**
+ *
+ * Single-pass summary statistics. Values are fed one at a time with add(); the mean and variance are updated
+ * with Welford's method, the minimum and maximum directly, and the 5th, 50th and 95th percentiles are
+ * estimated with the P-square algorithm, which keeps five markers per percentile instead of the values.
+ * Summarizing n values therefore takes one linear pass and constant memory.
+ *
+ * NaN values (e.g. the fill rate of a material without demand) propagate into the mean and standard deviation
+ * and are ignored by the minimum, maximum and percentiles, like the map-based methods did.
+ *
+ */
 public class Stats {
-	public static double mean(Map<Material, Double> map) {
-		double sum = 0.0;
-		for (Material m : map.keySet()) {
-			sum += map.get(m);
+
+	private long count;
+	private double mean;
+	private double m2;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	private final Quantile p5 = new Quantile(0.05);
+	private final Quantile p50 = new Quantile(0.50);
+	private final Quantile p95 = new Quantile(0.95);
+
+	/**
+	 * Adds a value.
+	 *
+	 * @param x	Value to add.
+	 */
+	public void add(double x) {
+		count++;
+		double delta = x - mean;
+		mean += delta/count;
+		m2 += delta*(x - mean);
+
+		if (x < min)
+			min = x;
+		if (x > max)
+			max = x;
+
+		if (!Double.isNaN(x)) {
+			p5.add(x);
+			p50.add(x);
+			p95.add(x);
 		}
-		return sum/map.size();
 	}
-	
+
+	/**
+	 * Summarizes an array of values.
+	 *
+	 * @param values	Values to summarize.
+	 * @return			Statistics of the values.
+	 */
+	public static Stats of(double[] values) {
+		Stats s = new Stats();
+		for (double x : values)
+			s.add(x);
+		return s;
+	}
+
+	public long count() {
+		return count;
+	}
+
+	public double mean() {
+		return count == 0 ? Double.NaN : mean;
+	}
+
+	/**
+	 * Returns the sample standard deviation, for a single value the deviation from the mean is returned.
+	 *
+	 * @return	Standard deviation.
+	 */
+	public double std() {
+		return Math.sqrt(m2/Math.max(count - 1, 1));
+	}
+
+	public double min() {
+		return min;
+	}
+
+	public double max() {
+		return max;
+	}
+
+	public double p5() {
+		return p5.estimate();
+	}
+
+	public double median() {
+		return p50.estimate();
+	}
+
+	public double p95() {
+		return p95.estimate();
+	}
+
+	public static double mean(Map<Material, Double> map) {
+		return of(map).mean();
+	}
+
 	public static double std(Map<Material, Double> map) {
-		double sum = 0.0;
-		double mean_d = mean(map);
-		for (Material m : map.keySet()) {
-			sum += Math.pow(mean_d - map.get(m), 2.0);
-		}
-		return Math.sqrt( sum/Math.max(map.size()-1, 1) );
+		return of(map).std();
 	}
-	
+
 	public static double min(Map<Material, Double> map) {
-		double min = Double.POSITIVE_INFINITY;
-		for (Material m : map.keySet()) {
-			double d = map.get(m);
-			if (d < min)
-				min = d;
-		}
-		return min;
+		return of(map).min();
 	}
-	
+
 	public static double max(Map<Material, Double> map) {
-		double max = Double.NEGATIVE_INFINITY;
-		for (Material m : map.keySet()) {
-			double d = map.get(m);
-			if (d > max)
-				max = d;
+		return of(map).max();
+	}
+
+	private static Stats of(Map<Material, Double> map) {
+		Stats s = new Stats();
+		for (double x : map.values())
+			s.add(x);
+		return s;
+	}
+
+	/**
+	 * P-square estimator of a single quantile (Jain and Chlamtac, 1985). Five markers track the minimum, the
+	 * quantile, the maximum and the quantiles halfway in between; their heights are adjusted with piecewise
+	 * parabolic interpolation as values arrive. Up to five values the quantile is computed exactly.
+	 */
+	private static class Quantile {
+
+		private final double p;
+		private final double[] heights = new double[5];
+		private final int[] positions = new int[5];
+		private final double[] desired = new double[5];
+		private final double[] increments = new double[5];
+		private int count;
+
+		Quantile(double p) {
+			this.p = p;
+			increments[0] = 0.0;
+			increments[1] = p/2;
+			increments[2] = p;
+			increments[3] = (1 + p)/2;
+			increments[4] = 1.0;
+		}
+
+		void add(double x) {
+			if (count < 5) {
+				heights[count++] = x;
+				if (count == 5) {
+					Arrays.sort(heights);
+					for (int i = 0; i < 5; i++)
+						positions[i] = i + 1;
+					desired[0] = 1;
+					desired[1] = 1 + 2*p;
+					desired[2] = 1 + 4*p;
+					desired[3] = 3 + 2*p;
+					desired[4] = 5;
+				}
+				return;
+			}
+			count++;
+
+			// find the cell of the new value and update the extreme markers
+			int k;
+			if (x < heights[0]) {
+				heights[0] = x;
+				k = 0;
+			} else if (x >= heights[4]) {
+				heights[4] = x;
+				k = 3;
+			} else {
+				k = 0;
+				while (x >= heights[k + 1])
+					k++;
+			}
+			for (int i = k + 1; i < 5; i++)
+				positions[i]++;
+			for (int i = 0; i < 5; i++)
+				desired[i] += increments[i];
+
+			// move the middle markers towards their desired positions
+			for (int i = 1; i < 4; i++) {
+				double d = desired[i] - positions[i];
+				if ((d >= 1 && positions[i + 1] - positions[i] > 1) || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+					int step = d > 0 ? 1 : -1;
+					double h = parabolic(i, step);
+					if (heights[i - 1] < h && h < heights[i + 1])
+						heights[i] = h;
+					else
+						heights[i] += step*(heights[i + step] - heights[i])/(positions[i + step] - positions[i]);
+					positions[i] += step;
+				}
+			}
+		}
+
+		double estimate() {
+			if (count == 0)
+				return Double.NaN;
+			if (count >= 5)
+				return heights[2];
+
+			// exact quantile of the few values seen so far, interpolating between order statistics
+			double[] sorted = Arrays.copyOf(heights, count);
+			Arrays.sort(sorted);
+			double rank = p*(count - 1);
+			int lo = (int) Math.floor(rank);
+			int hi = Math.min(lo + 1, count - 1);
+			return sorted[lo] + (rank - lo)*(sorted[hi] - sorted[lo]);
+		}
+
+		private double parabolic(int i, int step) {
+			double n0 = positions[i - 1];
+			double n1 = positions[i];
+			double n2 = positions[i + 1];
+			return heights[i] + step/(n2 - n0)*((n1 - n0 + step)*(heights[i + 1] - heights[i])/(n2 - n1)
+					+ (n2 - n1 - step)*(heights[i] - heights[i - 1])/(n1 - n0));
 		}
-		return max;
 	}
 }
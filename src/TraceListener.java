@@ -0,0 +1,49 @@
+import java.io.PrintStream;
+
+/**
+ * 
+ * @author Nemanja Milovanovic
+ * 
+ * Simulation listener which writes every event as a line of comma separated values: time, event, material ID,
+ * quantity, inventory level and inventory position.
+ *
+ */
+public class TraceListener implements SimulationListener {
+	
+	private PrintStream out;
+	
+	/**
+	 * Creates a trace listener writing to a certain stream. A header line is written immediately.
+	 * 
+	 * @param out	Stream to write the trace to.
+	 */
+	public TraceListener(PrintStream out) {
+		this.out = out;
+		out.println("Time,Event,Material,Quantity,Inventory level,Inventory position");
+	}
+
+	@Override
+	public void onConsumption(Material m, double time, int demand, int inventoryLevel, int inventoryPosition) {
+		write(time, "Consumption", m, demand, inventoryLevel, inventoryPosition);
+	}
+
+	@Override
+	public void onStockout(Material m, double time, int inventoryLevel, int inventoryPosition) {
+		write(time, "Stockout", m, 0, inventoryLevel, inventoryPosition);
+	}
+
+	@Override
+	public void onReorderPlaced(Material m, double time, int quantity, int inventoryLevel, int inventoryPosition) {
+		write(time, "Reorder", m, quantity, inventoryLevel, inventoryPosition);
+	}
+
+	@Override
+	public void onOrderArrival(Material m, double time, int quantity, int inventoryLevel, int inventoryPosition) {
+		write(time, "Order arrival", m, quantity, inventoryLevel, inventoryPosition);
+	}
+	
+	private void write(double time, String event, Material m, int quantity, int inventoryLevel, int inventoryPosition) {
+		out.println(time + "," + event + "," + m.getId() + "," + quantity + "," + inventoryLevel + "," + inventoryPosition);
+	}
+
+}
@@ -0,0 +1,102 @@
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ *
+ * @author Nemanja Milovanovic
+ *
+ * Checks that the steady-state simulation loop does not allocate per event. The same catalog is simulated with a
+ * short and a long demand history, and the bytes allocated by simulate() on the calling thread are compared: the
+ * difference per additional event must stay below a small bound, for the event list and the calendar queue.
+ * The per-run arrays and the result snapshot do not depend on the horizon, only per-day bookkeeping may grow with
+ * it, which is far below one event per day.
+ *
+ * Run from the project root with the sources and commons-math on the classpath, e.g.
+ * 		javac -cp lib/commons-math3-3.5/commons-math3-3.5.jar -d bin src/*.java test/*.java
+ * 		java -cp bin:lib/commons-math3-3.5/commons-math3-3.5.jar AllocationCheck
+ * It exits with status 1 if the allocation grows with the number of events.
+ *
+ */
+public class AllocationCheck {
+
+	private static final int MATERIALS = 200;
+	private static final int SHORT_HORIZON = 365;
+	private static final int LONG_HORIZON = 20*365;
+	// allowed growth of the allocation per additional demand event
+	private static final double MAX_BYTES_PER_EVENT = 1.0;
+	private static final int WARM_UP_RUNS = 5;
+
+	public static void main(String[] args) {
+		boolean failed = false;
+		for (boolean calendarQueue : new boolean[] { false, true }) {
+			long shortBytes = allocatedBytes(SHORT_HORIZON, calendarQueue);
+			long longBytes = allocatedBytes(LONG_HORIZON, calendarQueue);
+			long extraEvents = demandEvents(LONG_HORIZON) - demandEvents(SHORT_HORIZON);
+			double perEvent = (double)(longBytes - shortBytes)/extraEvents;
+			boolean ok = perEvent < MAX_BYTES_PER_EVENT;
+			System.out.println((calendarQueue ? "calendar queue" : "event list") + ": " + shortBytes + " bytes at "
+					+ SHORT_HORIZON + " days, " + longBytes + " bytes at " + LONG_HORIZON + " days, " + perEvent
+					+ " bytes per additional event " + (ok ? "OK" : "FAILED"));
+			failed |= !ok;
+		}
+		if (failed)
+			System.exit(1);
+	}
+
+	/**
+	 * Returns the bytes allocated by the calling thread for one simulate() of the catalog, after warming up.
+	 */
+	private static long allocatedBytes(int horizon, boolean calendarQueue) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		Simulator sim = new Simulator(catalog(horizon));
+		sim.setCalendarQueue(calendarQueue);
+		for (int i = 0; i < WARM_UP_RUNS; i++)
+			sim.simulate();
+
+		// the smallest of a few runs, so a stray allocation of the JIT does not count
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < WARM_UP_RUNS; i++) {
+			long before = threads.getThreadAllocatedBytes(thread);
+			sim.simulate();
+			min = Math.min(min, threads.getThreadAllocatedBytes(thread) - before);
+		}
+		return min;
+	}
+
+	/**
+	 * Creates a catalog with the same seed for every horizon. The attributes of a material are drawn before its 
+	 * demand, and its demand comes from a generator of its own, so a longer horizon only adds days.
+	 */
+	private static Set<Material> catalog(int horizon) {
+		Random random = new Random(42);
+		Set<Material> materials = new TreeSet<>();
+		for (int m = 0; m < MATERIALS; m++) {
+			double price = 1 + random.nextInt(500);
+			int minStock = 1 + random.nextInt(10);
+			int maxStock = minStock + 1 + random.nextInt(20);
+			double leadTime = 1 + random.nextInt(30);
+			Random demandRandom = new Random(random.nextLong());
+			int[] demand = new int[horizon];
+			for (int d = 0; d < horizon; d++)
+				demand[d] = demandRandom.nextInt(4) == 0 ? 1 + demandRandom.nextInt(5) : 0;
+			materials.add(new Material(String.valueOf(1000 + m), price, minStock, maxStock, leadTime, 
+					m % 3, m % 5, m % 2, demand, m % 2 == 0 ? "A" : "B", m % 3 == 0 ? "X" : "Y"));
+		}
+		return materials;
+	}
+
+	private static long demandEvents(int horizon) {
+		long events = 0;
+		for (Material m : catalog(horizon)) {
+			for (int d : m.getDemand()) {
+				if (d != 0)
+					events++;
+			}
+		}
+		return events;
+	}
+
+}